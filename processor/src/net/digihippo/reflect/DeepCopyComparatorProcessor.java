@@ -0,0 +1,174 @@
+package net.digihippo.reflect;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates a {@code GeneratedComparator} for every class annotated with
+ * {@code DeepCopyComparable}, and registers them all as services once processing is over.
+ * <p>
+ * Lives in its own module so that compiling the library never runs it; only code that uses the
+ * annotation, such as the tests, puts this module on its annotation processor path.
+ */
+@SupportedAnnotationTypes("net.digihippo.reflect.DeepCopyComparable")
+public final class DeepCopyComparatorProcessor extends AbstractProcessor
+{
+    static final String SUFFIX = "_DeepCopyComparator";
+    private static final String GENERATED_COMPARATOR = "net.digihippo.reflect.GeneratedComparator";
+
+    private final List<String> generated = new ArrayList<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+    {
+        for (TypeElement annotation : annotations)
+        {
+            for (TypeElement type : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(annotation)))
+            {
+                if (isAccessible(type))
+                {
+                    generate(type);
+                }
+            }
+        }
+
+        if (roundEnv.processingOver() && !generated.isEmpty())
+        {
+            writeServices();
+        }
+        return true;
+    }
+
+    private boolean isAccessible(TypeElement type)
+    {
+        boolean accessible = true;
+        for (Element current = type; current instanceof TypeElement; current = current.getEnclosingElement())
+        {
+            if (current.getModifiers().contains(Modifier.PRIVATE))
+            {
+                error(type, current + " must not be private to have a generated comparator");
+                accessible = false;
+            }
+        }
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements()))
+        {
+            if (!field.getModifiers().contains(Modifier.STATIC) && field.getModifiers().contains(Modifier.PRIVATE))
+            {
+                error(field, "Field " + field.getSimpleName() + " of " + type +
+                    " must not be private to be compared by a generated comparator");
+                accessible = false;
+            }
+        }
+        return accessible;
+    }
+
+    private void generate(TypeElement type)
+    {
+        final String packageName =
+            processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        final String typeName = type.getQualifiedName().toString();
+        final String nestedName = packageName.isEmpty() ? typeName : typeName.substring(packageName.length() + 1);
+        final String simpleName = nestedName.replace('.', '_') + SUFFIX;
+        final String className = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+
+        try
+        {
+            final JavaFileObject file = processingEnv.getFiler().createSourceFile(className, type);
+            try (PrintWriter out = new PrintWriter(file.openWriter()))
+            {
+                if (!packageName.isEmpty())
+                {
+                    out.println("package " + packageName + ";");
+                    out.println();
+                }
+                out.println("@SuppressWarnings({\"rawtypes\", \"unchecked\"})");
+                out.println("public final class " + simpleName +
+                    " implements net.digihippo.reflect.GeneratedComparator<" + typeName + ">");
+                out.println("{");
+                out.println("    @Override");
+                out.println("    public Class<" + typeName + "> type()");
+                out.println("    {");
+                out.println("        return " + typeName + ".class;");
+                out.println("    }");
+                out.println();
+                out.println("    @Override");
+                out.println("    public net.digihippo.reflect.DeepCopyMatchResult compare(");
+                out.println("        " + typeName + " one,");
+                out.println("        " + typeName + " two,");
+                out.println("        net.digihippo.reflect.GeneratedComparator.Fields fields)");
+                out.println("    {");
+                out.println("        net.digihippo.reflect.DeepCopyMatchResult result;");
+                for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements()))
+                {
+                    if (field.getModifiers().contains(Modifier.STATIC))
+                    {
+                        continue;
+                    }
+
+                    final String name = field.getSimpleName().toString();
+                    final String method = field.asType().getKind().isPrimitive() ? "matchPrimitive" : "match";
+                    out.println("        result = fields." + method + "(\"" + name + "\", one." + name + ", two." + name + ");");
+                    out.println("        if (!result.isDeepCopy)");
+                    out.println("        {");
+                    out.println("            return result;");
+                    out.println("        }");
+                }
+                out.println("        return net.digihippo.reflect.DeepCopyMatchResult.success();");
+                out.println("    }");
+                out.println("}");
+            }
+            generated.add(className);
+        }
+        catch (IOException e)
+        {
+            error(type, "Could not generate a comparator: " + e.getMessage());
+        }
+    }
+
+    private void writeServices()
+    {
+        try
+        {
+            final FileObject services = processingEnv.getFiler().createResource(
+                StandardLocation.CLASS_OUTPUT, "", "META-INF/services/" + GENERATED_COMPARATOR);
+            try (Writer out = services.openWriter())
+            {
+                for (String className : generated)
+                {
+                    out.write(className);
+                    out.write('\n');
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            processingEnv.getMessager().printMessage(
+                Diagnostic.Kind.ERROR, "Could not register generated comparators: " + e.getMessage());
+        }
+    }
+
+    private void error(Element element, String message)
+    {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,9 @@
+package net.digihippo.reflect;
+
+public final class AgronaIntMapAdapter extends ReflectivePrimitiveMapAdapter
+{
+    public AgronaIntMapAdapter()
+    {
+        super(int.class, "nextInt", "org.agrona.collections.Int2ObjectHashMap");
+    }
+}
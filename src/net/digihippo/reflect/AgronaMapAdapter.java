@@ -0,0 +1,9 @@
+package net.digihippo.reflect;
+
+public final class AgronaMapAdapter extends ReflectivePrimitiveMapAdapter
+{
+    public AgronaMapAdapter()
+    {
+        super(long.class, "nextLong", "org.agrona.collections.Long2ObjectHashMap");
+    }
+}
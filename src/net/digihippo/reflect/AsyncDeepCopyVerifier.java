@@ -0,0 +1,172 @@
+package net.digihippo.reflect;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs deep copy verifications off the calling thread, with at most {@code maxConcurrency} of
+ * them in flight at once. Unless an executor is supplied, each verification gets its own virtual
+ * thread where the JDK offers them, and a daemon thread from a cached pool otherwise. A
+ * verification the executor refuses, for instance after {@link #close()}, fails its future with
+ * the executor's {@link RejectedExecutionException}.
+ */
+public final class AsyncDeepCopyVerifier implements AutoCloseable
+{
+    private static final class Verification<T> implements Runnable
+    {
+        private final Callable<T> verification;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private Verification(Callable<T> verification)
+        {
+            this.verification = verification;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                future.complete(verification.call());
+            }
+            catch (Throwable t)
+            {
+                future.completeExceptionally(t);
+            }
+        }
+    }
+
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    private final int maxConcurrency;
+    private final Supplier<DeepCopyAssertion> assertions;
+    private final Queue<Verification<?>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public AsyncDeepCopyVerifier(int maxConcurrency, Class<?>... additionalImmutableTypes)
+    {
+        this(defaultExecutor(), true, maxConcurrency, () -> new DeepCopyAssertion(additionalImmutableTypes));
+    }
+
+    public AsyncDeepCopyVerifier(Executor executor, int maxConcurrency, Supplier<DeepCopyAssertion> assertions)
+    {
+        this(executor, false, maxConcurrency, assertions);
+    }
+
+    private AsyncDeepCopyVerifier(
+        Executor executor,
+        boolean owned,
+        int maxConcurrency,
+        Supplier<DeepCopyAssertion> assertions)
+    {
+        if (maxConcurrency <= 0)
+        {
+            throw new IllegalArgumentException("Concurrency must be positive, not " + maxConcurrency);
+        }
+        this.executor = executor;
+        this.ownedExecutor = owned ? (ExecutorService) executor : null;
+        this.maxConcurrency = maxConcurrency;
+        this.assertions = assertions;
+    }
+
+    public CompletableFuture<DeepCopyMatchResult> verify(Object one, Object two)
+    {
+        return submit(() -> assertions.get().matches(one, two));
+    }
+
+    public CompletableFuture<List<DeepCopyMatchResult>> verifyAll(List<ObjectPair> pairs)
+    {
+        return submit(() ->
+        {
+            final DeepCopyAssertion assertion = assertions.get();
+            final List<DeepCopyMatchResult> results = new ArrayList<>(pairs.size());
+            for (ObjectPair pair : pairs)
+            {
+                results.add(assertion.matches(pair.one, pair.two));
+            }
+            return results;
+        });
+    }
+
+    private <T> CompletableFuture<T> submit(Callable<T> verification)
+    {
+        final Verification<T> task = new Verification<>(verification);
+        pending.add(task);
+        dispatch();
+        return task.future;
+    }
+
+    private void dispatch()
+    {
+        while (!pending.isEmpty())
+        {
+            final int current = inFlight.get();
+            if (current >= maxConcurrency)
+            {
+                return;
+            }
+            if (!inFlight.compareAndSet(current, current + 1))
+            {
+                continue;
+            }
+
+            final Verification<?> task = pending.poll();
+            if (task == null)
+            {
+                inFlight.decrementAndGet();
+                continue;
+            }
+
+            try
+            {
+                executor.execute(() ->
+                {
+                    try
+                    {
+                        task.run();
+                    }
+                    finally
+                    {
+                        inFlight.decrementAndGet();
+                        dispatch();
+                    }
+                });
+            }
+            catch (RejectedExecutionException e)
+            {
+                inFlight.decrementAndGet();
+                task.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        if (ownedExecutor != null)
+        {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    private static ExecutorService defaultExecutor()
+    {
+        try
+        {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            return Executors.newCachedThreadPool(runnable ->
+            {
+                final Thread thread = new Thread(runnable, "deep-copy-verifier");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package net.digihippo.reflect;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Verifies many pairs with a single reused {@link DeepCopyAssertion} per thread, recording only
+ * which pairs failed and why.
+ * <p>
+ * {@link #verifyInParallel} splits the pairs into {@code parallelism} chunks and verifies them on a
+ * pool of that many threads, so it never competes with other users of the common pool.
+ */
+public final class BatchDeepCopyVerifier
+{
+    private final Class<?>[] additionalImmutableTypes;
+
+    public BatchDeepCopyVerifier(Class<?>... additionalImmutableTypes)
+    {
+        this.additionalImmutableTypes = additionalImmutableTypes;
+    }
+
+    public BatchMatchResult verify(Stream<ObjectPair> pairs)
+    {
+        return verify(pairs::iterator);
+    }
+
+    public BatchMatchResult verify(Iterable<ObjectPair> pairs)
+    {
+        final DeepCopyAssertion assertion = new DeepCopyAssertion(additionalImmutableTypes);
+        final BitSet failed = new BitSet();
+        final SortedMap<Integer, DeepCopyMatchResult> failures = new TreeMap<>();
+        int index = 0;
+        for (ObjectPair pair : pairs)
+        {
+            final DeepCopyMatchResult result = assertion.matches(pair.one, pair.two);
+            if (!result.isDeepCopy)
+            {
+                failed.set(index);
+                failures.put(index, result);
+            }
+            ++index;
+        }
+        return new BatchMatchResult(index, failed, failures);
+    }
+
+    public BatchMatchResult verifyInParallel(List<ObjectPair> pairs, int parallelism)
+    {
+        if (parallelism <= 0)
+        {
+            throw new IllegalArgumentException("Parallelism must be positive, not " + parallelism);
+        }
+
+        final int size = pairs.size();
+        final int chunkSize = Math.max(1, (size + parallelism - 1) / parallelism);
+        final int chunks = (size + chunkSize - 1) / chunkSize;
+        final int[] offsets = new int[chunks];
+        for (int chunk = 0; chunk < chunks; chunk++)
+        {
+            offsets[chunk] = chunk * chunkSize;
+        }
+
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try
+        {
+            final List<BatchMatchResult> parts = pool.submit(() -> IntStream.range(0, chunks)
+                .parallel()
+                .mapToObj(chunk -> verify(pairs.subList(offsets[chunk], Math.min(size, offsets[chunk] + chunkSize))))
+                .collect(Collectors.toList()))
+                .join();
+            return BatchMatchResult.merge(size, parts, offsets);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+}
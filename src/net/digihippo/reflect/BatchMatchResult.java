@@ -0,0 +1,66 @@
+package net.digihippo.reflect;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+public final class BatchMatchResult
+{
+    public final int size;
+    private final BitSet failed;
+    private final SortedMap<Integer, DeepCopyMatchResult> failures;
+
+    BatchMatchResult(int size, BitSet failed, SortedMap<Integer, DeepCopyMatchResult> failures)
+    {
+        this.size = size;
+        this.failed = failed;
+        this.failures = failures;
+    }
+
+    public boolean allDeepCopies()
+    {
+        return failed.isEmpty();
+    }
+
+    public boolean isDeepCopy(int index)
+    {
+        if (index < 0 || index >= size)
+        {
+            throw new IndexOutOfBoundsException("No pair " + index + " in a batch of " + size);
+        }
+        return !failed.get(index);
+    }
+
+    public int failureCount()
+    {
+        return failed.cardinality();
+    }
+
+    public DeepCopyMatchResult failure(int index)
+    {
+        return failures.get(index);
+    }
+
+    public SortedMap<Integer, DeepCopyMatchResult> failures()
+    {
+        return Collections.unmodifiableSortedMap(failures);
+    }
+
+    static BatchMatchResult merge(int size, Iterable<BatchMatchResult> parts, int[] offsets)
+    {
+        final BitSet failed = new BitSet(size);
+        final SortedMap<Integer, DeepCopyMatchResult> failures = new TreeMap<>();
+        int part = 0;
+        for (BatchMatchResult result : parts)
+        {
+            final int offset = offsets[part++];
+            for (int i = result.failed.nextSetBit(0); i >= 0; i = result.failed.nextSetBit(i + 1))
+            {
+                failed.set(offset + i);
+                failures.put(offset + i, result.failures.get(i));
+            }
+        }
+        return new BatchMatchResult(size, failed, failures);
+    }
+}
@@ -0,0 +1,16 @@
+package net.digihippo.reflect;
+
+public final class BuiltInPrimitiveListAdapter extends ReflectivePrimitiveListAdapter
+{
+    public BuiltInPrimitiveListAdapter()
+    {
+        super(
+            "it.unimi.dsi.fastutil.longs.LongArrayList", "toLongArray",
+            "it.unimi.dsi.fastutil.ints.IntArrayList", "toIntArray",
+            "it.unimi.dsi.fastutil.doubles.DoubleArrayList", "toDoubleArray",
+            "it.unimi.dsi.fastutil.floats.FloatArrayList", "toFloatArray",
+            "it.unimi.dsi.fastutil.bytes.ByteArrayList", "toByteArray",
+            "org.agrona.collections.IntArrayList", "toIntArray",
+            "org.agrona.collections.LongArrayList", "toLongArray");
+    }
+}
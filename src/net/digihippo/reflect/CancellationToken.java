@@ -0,0 +1,16 @@
+package net.digihippo.reflect;
+
+public final class CancellationToken
+{
+    private volatile boolean cancelled;
+
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+}
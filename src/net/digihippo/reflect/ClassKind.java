@@ -0,0 +1,123 @@
+package net.digihippo.reflect;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Everything {@link DeepCopyAssertion} needs to decide how to compare instances of one class,
+ * worked out the first time the class is seen so that each node costs a single lookup.
+ */
+final class ClassKind
+{
+    enum Shape
+    {
+        VALUE,
+        ENUM,
+        ARRAY,
+        KEYED_ADAPTER,
+        LIST_ADAPTER,
+        MAP,
+        COLLECTION,
+        GENERATED,
+        FIELDS,
+        OPAQUE
+    }
+
+    private static final ClassValue<ClassKind> KINDS = new ClassValue<ClassKind>()
+    {
+        @Override
+        protected ClassKind computeValue(Class<?> type)
+        {
+            return classify(type);
+        }
+    };
+
+    final Shape shape;
+    final boolean immutable;
+    final Object adapter;
+    final GeneratedComparator<Object> comparator;
+    final ClassPlan plan;
+
+    private ClassKind(
+        Shape shape,
+        boolean immutable,
+        Object adapter,
+        GeneratedComparator<Object> comparator,
+        ClassPlan plan)
+    {
+        this.shape = shape;
+        this.immutable = immutable;
+        this.adapter = adapter;
+        this.comparator = comparator;
+        this.plan = plan;
+    }
+
+    static ClassKind of(Class<?> type)
+    {
+        return KINDS.get(type);
+    }
+
+    static ClassKind of(Class<?> type, Set<Class<?>> additionalValueTypes, List<Object> adapters)
+    {
+        final ClassKind kind = of(type);
+        if (additionalValueTypes.contains(type))
+        {
+            return new ClassKind(Shape.VALUE, kind.immutable, null, null, null);
+        }
+        if (kind.shape == Shape.VALUE || kind.shape == Shape.ENUM || kind.shape == Shape.ARRAY)
+        {
+            return kind;
+        }
+
+        final Object adapter = PrimitiveCollectionAdapters.find(adapters, type);
+        return adapter == PrimitiveCollectionAdapters.NONE ? kind : adapted(adapter, kind.immutable);
+    }
+
+    private static ClassKind classify(Class<?> type)
+    {
+        final boolean immutable = CollectionStrategy.isImmutable(type);
+        if (ValueTypes.isBuiltIn(type))
+        {
+            return new ClassKind(Shape.VALUE, immutable, null, null, null);
+        }
+        if (type.isEnum())
+        {
+            return new ClassKind(Shape.ENUM, immutable, null, null, null);
+        }
+        if (type.isArray())
+        {
+            return new ClassKind(Shape.ARRAY, immutable, null, null, null);
+        }
+
+        final Object adapter = PrimitiveCollectionAdapters.forClass(type);
+        if (adapter != PrimitiveCollectionAdapters.NONE)
+        {
+            return adapted(adapter, immutable);
+        }
+        if (Map.class.isAssignableFrom(type))
+        {
+            return new ClassKind(Shape.MAP, immutable, null, null, null);
+        }
+        if (Collection.class.isAssignableFrom(type))
+        {
+            return new ClassKind(Shape.COLLECTION, immutable, null, null, null);
+        }
+
+        final GeneratedComparator<Object> comparator = GeneratedComparators.forClass(type);
+        if (comparator != null)
+        {
+            return new ClassKind(Shape.GENERATED, immutable, null, comparator, null);
+        }
+
+        final ClassPlan plan = ClassPlan.of(type);
+        return new ClassKind(plan.accessible ? Shape.FIELDS : Shape.OPAQUE, immutable, null, null, plan);
+    }
+
+    private static ClassKind adapted(Object adapter, boolean immutable)
+    {
+        final Shape shape = adapter instanceof PrimitiveKeyedMapAdapter ? Shape.KEYED_ADAPTER : Shape.LIST_ADAPTER;
+        return new ClassKind(shape, immutable, adapter, null, null);
+    }
+}
@@ -0,0 +1,114 @@
+package net.digihippo.reflect;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class ClassPlan
+{
+    private static final ClassValue<ClassPlan> PLANS = new ClassValue<ClassPlan>()
+    {
+        @Override
+        protected ClassPlan computeValue(Class<?> type)
+        {
+            final Set<Class<?>> recorded = recording;
+            if (recorded != null)
+            {
+                recorded.add(type);
+            }
+            return new ClassPlan(type);
+        }
+    };
+
+    private static volatile Set<Class<?>> recording;
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+
+    final Field[] fields;
+    final boolean accessible;
+    private final MethodHandle[] getters;
+
+    private ClassPlan(Class<?> type)
+    {
+        this.fields = declaredFields(type);
+        this.getters = gettersFor(type, this.fields);
+        this.accessible = getters != null;
+    }
+
+    static ClassPlan of(Class<?> type)
+    {
+        return PLANS.get(type);
+    }
+
+    Object get(int index, Object owner)
+    {
+        try
+        {
+            return getters[index].invokeExact(owner);
+        }
+        catch (RuntimeException | Error e)
+        {
+            throw e;
+        }
+        catch (Throwable t)
+        {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    static void startRecording()
+    {
+        if (recording == null)
+        {
+            recording = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        }
+    }
+
+    static Set<Class<?>> stopRecording()
+    {
+        final Set<Class<?>> recorded = recording;
+        recording = null;
+        return recorded == null ? Collections.emptySet() : recorded;
+    }
+
+    private static Field[] declaredFields(Class<?> type)
+    {
+        final List<Field> fields = new ArrayList<>();
+        for (Field field : type.getDeclaredFields())
+        {
+            if (!field.isSynthetic() && !Modifier.isStatic(field.getModifiers()))
+            {
+                fields.add(field);
+            }
+        }
+        return fields.toArray(new Field[0]);
+    }
+
+    private static MethodHandle[] gettersFor(Class<?> type, Field[] fields)
+    {
+        if (!type.getModule().isOpen(type.getPackageName(), ClassPlan.class.getModule()))
+        {
+            return null;
+        }
+
+        try
+        {
+            final MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, LOOKUP);
+            final MethodHandle[] getters = new MethodHandle[fields.length];
+            for (int i = 0; i < fields.length; i++)
+            {
+                getters[i] = lookup.unreflectGetter(fields[i]).asType(GETTER);
+            }
+            return getters;
+        }
+        catch (IllegalAccessException | SecurityException e)
+        {
+            return null;
+        }
+    }
+}
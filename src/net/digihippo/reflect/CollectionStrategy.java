@@ -0,0 +1,80 @@
+package net.digihippo.reflect;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+enum CollectionStrategy
+{
+    INDEXED,
+    SNAPSHOT,
+    ITERATED,
+    GENERIC;
+
+    private static final Set<Class<?>> IMMUTABLE_CONTAINERS = new HashSet<>(Arrays.asList(
+        List.of().getClass(),
+        List.of(1).getClass(),
+        List.of(1, 2, 3).getClass(),
+        Set.of().getClass(),
+        Set.of(1).getClass(),
+        Set.of(1, 2, 3).getClass(),
+        Map.of().getClass(),
+        Map.of(1, 1).getClass(),
+        Map.of(1, 1, 2, 2).getClass(),
+        Collections.emptyList().getClass(),
+        Collections.emptySet().getClass(),
+        Collections.emptyMap().getClass(),
+        Collections.emptySortedSet().getClass(),
+        Collections.emptySortedMap().getClass(),
+        Collections.singletonList(1).getClass(),
+        Collections.singleton(1).getClass(),
+        Collections.singletonMap(1, 1).getClass()));
+
+    private static final ClassValue<CollectionStrategy> STRATEGIES = new ClassValue<CollectionStrategy>()
+    {
+        @Override
+        protected CollectionStrategy computeValue(Class<?> type)
+        {
+            return choose(type);
+        }
+    };
+
+    private static final ClassValue<Boolean> IMMUTABLE = new ClassValue<Boolean>()
+    {
+        @Override
+        protected Boolean computeValue(Class<?> type)
+        {
+            return IMMUTABLE_CONTAINERS.contains(type);
+        }
+    };
+
+    static CollectionStrategy of(Class<?> type)
+    {
+        return STRATEGIES.get(type);
+    }
+
+    static boolean isImmutable(Class<?> type)
+    {
+        return IMMUTABLE.get(type);
+    }
+
+    private static CollectionStrategy choose(Class<?> type)
+    {
+        if (type == CopyOnWriteArrayList.class || type == CopyOnWriteArraySet.class)
+        {
+            return SNAPSHOT;
+        }
+
+        if (!type.getName().startsWith("java.util."))
+        {
+            return GENERIC;
+        }
+
+        if (List.class.isAssignableFrom(type) && RandomAccess.class.isAssignableFrom(type))
+        {
+            return INDEXED;
+        }
+
+        return ITERATED;
+    }
+}
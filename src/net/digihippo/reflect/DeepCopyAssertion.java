@@ -1,113 +1,502 @@
 package net.digihippo.reflect;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
+import java.time.Duration;
 import java.util.*;
 
 public final class DeepCopyAssertion
 {
     private static final String ABSENT = "<absent>";
+    private static final int ELEMENT_POLL_MASK = 0xFFF;
 
-    private final Set<Class<?>> valueTypes = new HashSet<>();
+    private final Set<Class<?>> additionalValueTypes;
+
+    interface PairListener
     {
-        valueTypes.add(String.class);
-        valueTypes.add(Long.class);
-        valueTypes.add(Integer.class);
-        valueTypes.add(Float.class);
-        valueTypes.add(Double.class);
-        valueTypes.add(Boolean.class);
-        valueTypes.add(Byte.class);
+        void enter(Object one, Object two, Object segment);
+
+        void exit();
     }
 
-    private final Stack<String> fieldPath = new Stack<>();
+    static final class MapKey
+    {
+        private final Object key;
 
-    public DeepCopyAssertion(Class<?>... additionalImmutableTypes)
+        MapKey(Object key)
+        {
+            this.key = key;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "get(" + key + ")";
+        }
+    }
+
+    private static final class PrimitiveKey
     {
-        fieldPath.push("root");
-        Collections.addAll(valueTypes, additionalImmutableTypes);
+        private final long key;
+
+        private PrimitiveKey(long key)
+        {
+            this.key = key;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "get(" + key + ")";
+        }
     }
 
-    public DeepCopyMatchResult matches(Object one, Object two)
+    private static final List<String> ROOT = Collections.singletonList("root");
+    private static final String KEY = "key";
+
+    private final Stack<Object> fieldPath = new Stack<>();
+    private final GeneratedComparator.Fields generatedFields = new GeneratedComparator.Fields()
     {
-        try
+        @Override
+        public DeepCopyMatchResult match(String name, Object one, Object two)
         {
-            if (one == null && two == null)
+            fieldPath.push(name);
+            final DeepCopyMatchResult result = DeepCopyAssertion.this.match(one, two);
+            if (result.isDeepCopy)
             {
-                return DeepCopyMatchResult.success();
+                fieldPath.pop();
             }
+            return result;
+        }
 
-            if (one == null || two == null)
+        @Override
+        public DeepCopyMatchResult matchPrimitive(String name, Object one, Object two)
+        {
+            fieldPath.push(name);
+            final DeepCopyMatchResult result = matchNode(one, two);
+            if (result.isDeepCopy)
             {
-                return valueNotEqual(one, two);
+                fieldPath.pop();
             }
+            return result;
+        }
+    };
+    private PairListener listener;
+    private final List<Object> primitiveAdapters = new ArrayList<>();
+    private Map<Class<?>, ClassKind> kinds;
+    private int liveAttempts;
+    private int liveRetriesLeft;
+    private FloatingPointTolerance tolerance = FloatingPointTolerance.exact();
+    private MapComparison mapComparison = MapComparison.VALUES_BY_KEY;
+    private Sampling sampling;
+    private Random sampleRandom;
+    private long elementsChecked;
+    private long elementsSeen;
+    private long nodeBudget = Long.MAX_VALUE;
+    private long timeBudgetNanos = -1;
+    private CancellationToken cancellation;
+    private boolean limited;
+    private long nodesVisited;
+    private long deadline;
+    private ShapeProfile profile;
+    private boolean profileSuspended;
+
+    public DeepCopyAssertion(Class<?>... additionalImmutableTypes)
+    {
+        this.additionalValueTypes = new HashSet<>(Arrays.asList(additionalImmutableTypes));
+        this.kinds = additionalImmutableTypes.length == 0 ? null : new HashMap<>();
+    }
+
+    public DeepCopyAssertion withSampling(Sampling sampling)
+    {
+        this.sampling = sampling;
+        return this;
+    }
+
+    public DeepCopyAssertion withMapComparison(MapComparison mapComparison)
+    {
+        this.mapComparison = mapComparison;
+        return this;
+    }
+
+    public DeepCopyAssertion withLiveGraphs(int maxAttempts)
+    {
+        if (maxAttempts <= 0)
+        {
+            throw new IllegalArgumentException("At least one attempt is needed, not " + maxAttempts);
+        }
+        this.liveAttempts = maxAttempts;
+        return this;
+    }
+
+    public DeepCopyAssertion withFloatingPointTolerance(FloatingPointTolerance tolerance)
+    {
+        this.tolerance = tolerance;
+        return this;
+    }
+
+    public DeepCopyAssertion withPrimitiveAdapter(PrimitiveKeyedMapAdapter adapter)
+    {
+        primitiveAdapters.add(adapter);
+        kinds = new HashMap<>();
+        return this;
+    }
+
+    public DeepCopyAssertion withPrimitiveAdapter(PrimitiveListAdapter adapter)
+    {
+        primitiveAdapters.add(adapter);
+        kinds = new HashMap<>();
+        return this;
+    }
+
+    public DeepCopyAssertion withNodeBudget(long maxNodes)
+    {
+        this.nodeBudget = maxNodes;
+        this.limited = true;
+        return this;
+    }
+
+    public DeepCopyAssertion withTimeBudget(Duration timeBudget)
+    {
+        this.timeBudgetNanos = timeBudget.toNanos();
+        this.limited = true;
+        return this;
+    }
+
+    public DeepCopyAssertion withCancellation(CancellationToken cancellation)
+    {
+        this.cancellation = cancellation;
+        this.limited = true;
+        return this;
+    }
+
+    public DeepCopyAssertion withProfile(ShapeProfile profile)
+    {
+        this.profile = profile;
+        return this;
+    }
+
+    DeepCopyAssertion listener(PairListener listener)
+    {
+        this.listener = listener;
+        return this;
+    }
 
-            if (!one.getClass().equals(two.getClass()))
+    public DeepCopyMatchResult matches(Object one, Object two)
+    {
+        return matches(ROOT, one, two);
+    }
+
+    DeepCopyMatchResult matches(List<?> path, Object one, Object two)
+    {
+        fieldPath.clear();
+        fieldPath.addAll(path);
+        nodesVisited = 0;
+        liveRetriesLeft = liveAttempts - 1;
+        deadline = System.nanoTime() + timeBudgetNanos;
+        if (profile != null)
+        {
+            profile.begin();
+        }
+        if (sampling == null)
+        {
+            return match(one, two);
+        }
+
+        sampleRandom = new Random(sampling.seed);
+        elementsChecked = 0;
+        elementsSeen = 0;
+        final DeepCopyMatchResult result = match(one, two);
+        return result.withCoverage(elementsSeen == 0 ? 1.0 : (double) elementsChecked / elementsSeen);
+    }
+
+    private DeepCopyMatchResult match(Object one, Object two)
+    {
+        if (profile == null || profileSuspended || one == null || one instanceof Enum)
+        {
+            return matchNode(one, two);
+        }
+
+        profile.enter(fieldPath.peek(), one);
+        try
+        {
+            return matchNode(one, two);
+        }
+        finally
+        {
+            profile.exit();
+        }
+    }
+
+    private DeepCopyMatchResult matchNode(Object one, Object two)
+    {
+        if (limited)
+        {
+            final String stopReason = stopReason();
+            if (stopReason != null)
             {
-                return fail(
-                    "objects are not the same type ("+ one.getClass().getName() +
-                    " versus " + two.getClass().getName() + ")");
+                return DeepCopyMatchResult.inconclusive(describe(fieldPath, stopReason));
             }
+        }
+
+        if (one == null && two == null)
+        {
+            return DeepCopyMatchResult.success();
+        }
+
+        if (one == null || two == null)
+        {
+            return valueNotEqual(one, two);
+        }
+
+        if (!one.getClass().equals(two.getClass()))
+        {
+            return fail(
+                "objects are not the same type ("+ one.getClass().getName() +
+                " versus " + two.getClass().getName() + ")");
+        }
+
+        final ClassKind kind = kindOf(one.getClass());
+        if (kind.shape == ClassKind.Shape.VALUE)
+        {
+            return performValueTypeMatch(one, two);
+        }
 
-            if (isValueType(one))
+        if (kind.shape == ClassKind.Shape.ENUM)
+        {
+            if (one == two)
             {
-                return performValueTypeMatch(one, two);
+                return DeepCopyMatchResult.success();
             }
-
-            if (one.getClass().isEnum())
+            else
             {
-                if (one == two)
-                {
-                    return DeepCopyMatchResult.success();
-                }
-                else
-                {
-                    return valueNotEqual(one, two);
-                }
+                return valueNotEqual(one, two);
             }
+        }
 
-            if (one == two)
+        if (one == two)
+        {
+            if (kind.immutable)
             {
-                return fail("The same instance cannot be a deep copy of itself");
+                return sharedImmutableMatch(one);
             }
+            return fail("The same instance cannot be a deep copy of itself");
+        }
 
-            if (one.getClass().isArray())
-            {
+        if (listener == null)
+        {
+            return referenceTypeMatch(kind, one, two);
+        }
+
+        listener.enter(one, two, fieldPath.peek());
+        try
+        {
+            return referenceTypeMatch(kind, one, two);
+        }
+        finally
+        {
+            listener.exit();
+        }
+    }
+
+    private String stopReason()
+    {
+        if (++nodesVisited > nodeBudget)
+        {
+            return "verification stopped after " + nodeBudget + " nodes";
+        }
+        return (nodesVisited & 0xFF) == 0 ? pollReason() : null;
+    }
+
+    private String pollReason()
+    {
+        if (cancellation != null && cancellation.isCancelled())
+        {
+            return "verification cancelled after " + nodesVisited + " nodes";
+        }
+        if (timeBudgetNanos >= 0 && System.nanoTime() - deadline > 0)
+        {
+            return "verification timed out after " + nodesVisited + " nodes";
+        }
+        return null;
+    }
+
+    private DeepCopyMatchResult stoppedAt(int index, String open, String close)
+    {
+        if (!limited || index == 0 || (index & ELEMENT_POLL_MASK) != 0)
+        {
+            return null;
+        }
+        final String reason = pollReason();
+        if (reason == null)
+        {
+            return null;
+        }
+        fieldPath.push(open + index + close);
+        return DeepCopyMatchResult.inconclusive(describe(fieldPath, reason));
+    }
+
+    private DeepCopyMatchResult stoppedAt(int index)
+    {
+        return stoppedAt(index, "[", "]");
+    }
+
+    private int chunkEnd(int from, int end)
+    {
+        return limited ? Math.min(end, (from | ELEMENT_POLL_MASK) + 1) : end;
+    }
+
+    private DeepCopyMatchResult referenceTypeMatch(ClassKind kind, Object one, Object two)
+    {
+        switch (kind.shape)
+        {
+            case ARRAY:
                 return arrayMatch(one, two);
+            case KEYED_ADAPTER:
+                return primitiveKeyedMapMatch((PrimitiveKeyedMapAdapter) kind.adapter, one, two);
+            case LIST_ADAPTER:
+                final PrimitiveListAdapter listAdapter = (PrimitiveListAdapter) kind.adapter;
+                return arrayMatch(listAdapter.toArray(one), listAdapter.toArray(two));
+            case MAP:
+                return liveAttempts == 0 ? mapTypeMatch(one, two) : liveContainerMatch(one, two);
+            case COLLECTION:
+                return liveAttempts == 0 ? collectionTypeMatch(one, two) : liveContainerMatch(one, two);
+            case GENERATED:
+                return kind.comparator.compare(one, two, generatedFields);
+            case OPAQUE:
+                return one.equals(two) ? DeepCopyMatchResult.success() : valueNotEqual(one, two);
+            default:
+                return fieldByFieldMatch(kind.plan, one, two);
+        }
+    }
+
+    private ClassKind kindOf(Class<?> type)
+    {
+        if (kinds == null)
+        {
+            return ClassKind.of(type);
+        }
+
+        ClassKind kind = kinds.get(type);
+        if (kind == null)
+        {
+            kind = ClassKind.of(type, additionalValueTypes, primitiveAdapters);
+            kinds.put(type, kind);
+        }
+        return kind;
+    }
+
+    private DeepCopyMatchResult fieldByFieldMatch(ClassPlan plan, Object one, Object two)
+    {
+        for (int i = 0; i < plan.fields.length; i++)
+        {
+            fieldPath.push(plan.fields[i].getName());
+
+            final DeepCopyMatchResult result = plan.fields[i].getType().isPrimitive() ?
+                matchNode(plan.get(i, one), plan.get(i, two)) :
+                match(plan.get(i, one), plan.get(i, two));
+            if (!result.isDeepCopy)
+            {
+                return result;
             }
 
-            if (one instanceof Map)
+            fieldPath.pop();
+        }
+
+        return DeepCopyMatchResult.success();
+    }
+
+    private DeepCopyMatchResult liveContainerMatch(Object one, Object two)
+    {
+        final int depth = fieldPath.size();
+        DeepCopyMatchResult previous = null;
+        int attempts = 0;
+        do
+        {
+            ++attempts;
+            fieldPath.setSize(depth);
+
+            final Object snapshotOne;
+            final Object snapshotTwo;
+            try
+            {
+                snapshotOne = snapshot(one);
+                snapshotTwo = snapshot(two);
+            }
+            catch (ConcurrentModificationException e)
             {
-                return mapTypeMatch(one, two);
+                previous = null;
+                continue;
             }
 
-            if (one instanceof Collection)
+            final DeepCopyMatchResult result = one instanceof Map ?
+                mapTypeMatch(snapshotOne, snapshotTwo) :
+                collectionTypeMatch(snapshotOne, snapshotTwo);
+            if (result.isDeepCopy || result.isInconclusive || liveRetriesLeft == 0 && attempts == 1 ||
+                (previous != null && previous.failureDescription.equals(result.failureDescription)))
             {
-                return collectionTypeMatch(one, two);
+                return result;
             }
+            previous = result;
+        }
+        while (retryLiveContainer());
+
+        fieldPath.setSize(depth);
+        return DeepCopyMatchResult.concurrentlyModified(describe(
+            fieldPath, "modified concurrently on each of " + attempts + " attempts to take a consistent view"));
+    }
+
+    private boolean retryLiveContainer()
+    {
+        if (liveRetriesLeft == 0)
+        {
+            return false;
+        }
+        --liveRetriesLeft;
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object snapshot(Object container)
+    {
+        if (container instanceof Collection)
+        {
+            return Arrays.asList(((Collection<?>) container).toArray());
+        }
 
-            return fieldByFieldMatch(one, two);
+        final Map<?, ?> map = (Map<?, ?>) container;
+        final Map<Object, Object> snapshot;
+        if (map instanceof SortedMap)
+        {
+            snapshot = new TreeMap<>((Comparator<Object>) ((SortedMap<?, ?>) map).comparator());
+        }
+        else if (map instanceof IdentityHashMap)
+        {
+            snapshot = new IdentityHashMap<>();
         }
-        catch (IllegalAccessException e)
+        else
+        {
+            snapshot = new LinkedHashMap<>();
+        }
+        for (Map.Entry<?, ?> entry : map.entrySet())
         {
-            return DeepCopyMatchResult.failure(e.getMessage());
+            snapshot.put(entry.getKey(), entry.getValue());
         }
+        return snapshot;
     }
 
-    private DeepCopyMatchResult fieldByFieldMatch(Object one, Object two) throws IllegalAccessException
+    private DeepCopyMatchResult primitiveKeyedMapMatch(PrimitiveKeyedMapAdapter adapter, Object one, Object two)
     {
-        final Field[] fields = one.getClass().getDeclaredFields();
-        for (Field field : fields)
+        final PrimitiveIterator.OfLong keys = adapter.keys(one);
+        while (keys.hasNext())
         {
-            if (field.isSynthetic() || Modifier.isStatic(field.getModifiers()))
+            final long key = keys.nextLong();
+            fieldPath.push(new PrimitiveKey(key));
+
+            if (!adapter.containsKey(two, key))
             {
-                continue;
+                return valueNotEqual(adapter.get(one, key), ABSENT);
             }
 
-            field.setAccessible(true);
-
-            fieldPath.push(field.getName());
-
-            DeepCopyMatchResult result = matches(field.get(one), field.get(two));
+            final DeepCopyMatchResult result = match(adapter.get(one, key), adapter.get(two, key));
             if (!result.isDeepCopy)
             {
                 return result;
@@ -116,6 +505,19 @@ public final class DeepCopyAssertion
             fieldPath.pop();
         }
 
+        if (adapter.size(one) != adapter.size(two))
+        {
+            final PrimitiveIterator.OfLong otherKeys = adapter.keys(two);
+            while (otherKeys.hasNext())
+            {
+                final long key = otherKeys.nextLong();
+                if (!adapter.containsKey(one, key))
+                {
+                    fieldPath.push(new PrimitiveKey(key));
+                    return valueNotEqual(ABSENT, adapter.get(two, key));
+                }
+            }
+        }
         return DeepCopyMatchResult.success();
     }
 
@@ -148,6 +550,14 @@ public final class DeepCopyAssertion
             {
                 return byteArrayMatch((byte[]) one, (byte[]) two);
             }
+            else if (componentType == short.class)
+            {
+                return shortArrayMatch((short[]) one, (short[]) two);
+            }
+            else if (componentType == char.class)
+            {
+                return charArrayMatch((char[]) one, (char[]) two);
+            }
             throw new UnsupportedOperationException("I have no idea what " + componentType + " is.");
         }
         else
@@ -158,6 +568,16 @@ public final class DeepCopyAssertion
 
     private DeepCopyMatchResult objectArrayMatch(Object[] one, Object[] two)
     {
+        if (sampling != null)
+        {
+            if (one.length == two.length)
+            {
+                return sampledMatch(Arrays.asList(one), Arrays.asList(two), "[", "]");
+            }
+            elementsSeen += one.length;
+            elementsChecked += one.length;
+        }
+
         for (int i = 0; i < one.length; i++)
         {
             fieldPath.push("[" + i + "]");
@@ -166,7 +586,7 @@ public final class DeepCopyAssertion
             {
                 return valueNotEqual(one[i], ABSENT);
             }
-            final DeepCopyMatchResult result = matches(one[i], two[i]);
+            final DeepCopyMatchResult result = match(one[i], two[i]);
             if (!result.isDeepCopy)
             {
                 return result;
@@ -174,21 +594,31 @@ public final class DeepCopyAssertion
 
             fieldPath.pop();
         }
-        for (int i = 0; i < two.length; i++)
-        {
-            fieldPath.push("[" + i + "]");
 
-            if (i >= one.length)
-            {
-                return valueNotEqual(ABSENT, two[i]);
-            }
-            final DeepCopyMatchResult result = matches(one[i], two[i]);
-            if (!result.isDeepCopy)
+        final boolean suspended = profileSuspended;
+        profileSuspended = true;
+        try
+        {
+            for (int i = 0; i < two.length; i++)
             {
-                return result;
-            }
+                fieldPath.push("[" + i + "]");
 
-            fieldPath.pop();
+                if (i >= one.length)
+                {
+                    return valueNotEqual(ABSENT, two[i]);
+                }
+                final DeepCopyMatchResult result = match(one[i], two[i]);
+                if (!result.isDeepCopy)
+                {
+                    return result;
+                }
+
+                fieldPath.pop();
+            }
+        }
+        finally
+        {
+            profileSuspended = suspended;
         }
         return DeepCopyMatchResult.success();
     }
@@ -197,6 +627,11 @@ public final class DeepCopyAssertion
     {
         for (int i = 0; i < one.length; i++)
         {
+            final DeepCopyMatchResult stopped = stoppedAt(i);
+            if (stopped != null)
+            {
+                return stopped;
+            }
             fieldPath.push("[" + i + "]");
 
             final DeepCopyMatchResult result =
@@ -210,6 +645,11 @@ public final class DeepCopyAssertion
         }
         for (int i = 0; i < two.length; i++)
         {
+            final DeepCopyMatchResult stopped = stoppedAt(i);
+            if (stopped != null)
+            {
+                return stopped;
+            }
             fieldPath.push("[" + i + "]");
 
             final DeepCopyMatchResult result =
@@ -228,6 +668,11 @@ public final class DeepCopyAssertion
     {
         for (int i = 0; i < one.length; i++)
         {
+            final DeepCopyMatchResult stopped = stoppedAt(i);
+            if (stopped != null)
+            {
+                return stopped;
+            }
             fieldPath.push("[" + i + "]");
 
             final DeepCopyMatchResult result =
@@ -241,6 +686,11 @@ public final class DeepCopyAssertion
         }
         for (int i = 0; i < two.length; i++)
         {
+            final DeepCopyMatchResult stopped = stoppedAt(i);
+            if (stopped != null)
+            {
+                return stopped;
+            }
             fieldPath.push("[" + i + "]");
 
             final DeepCopyMatchResult result =
@@ -259,6 +709,11 @@ public final class DeepCopyAssertion
     {
         for (int i = 0; i < one.length; i++)
         {
+            final DeepCopyMatchResult stopped = stoppedAt(i);
+            if (stopped != null)
+            {
+                return stopped;
+            }
             fieldPath.push("[" + i + "]");
 
             final DeepCopyMatchResult result =
@@ -272,6 +727,11 @@ public final class DeepCopyAssertion
         }
         for (int i = 0; i < two.length; i++)
         {
+            final DeepCopyMatchResult stopped = stoppedAt(i);
+            if (stopped != null)
+            {
+                return stopped;
+            }
             fieldPath.push("[" + i + "]");
 
             final DeepCopyMatchResult result =
@@ -288,62 +748,108 @@ public final class DeepCopyAssertion
 
     private DeepCopyMatchResult floatArrayMatch(float[] one, float[] two)
     {
-        for (int i = 0; i < one.length; i++)
+        final int common = Math.min(one.length, two.length);
+        if (tolerance.acceptsIdentical())
         {
-            fieldPath.push("[" + i + "]");
-
-            final DeepCopyMatchResult result =
-                performValueTypeMatch(one[i], i < two.length ? two[i] : ABSENT);
-            if (!result.isDeepCopy)
+            int from = 0;
+            while (from < common)
             {
-                return result;
+                final DeepCopyMatchResult stopped = stoppedAt(from);
+                if (stopped != null)
+                {
+                    return stopped;
+                }
+                final int to = chunkEnd(from, common);
+                final int mismatch = Arrays.mismatch(one, from, to, two, from, to);
+                if (mismatch < 0)
+                {
+                    from = to;
+                    continue;
+                }
+                final int index = from + mismatch;
+                if (!tolerance.matches(one[index], two[index]))
+                {
+                    fieldPath.push("[" + index + "]");
+                    return valueNotEqual(one[index], two[index]);
+                }
+                from = index + 1;
             }
-
-            fieldPath.pop();
         }
-        for (int i = 0; i < two.length; i++)
+        else
         {
-            fieldPath.push("[" + i + "]");
-
-            final DeepCopyMatchResult result =
-                performValueTypeMatch(i < one.length ? one[i] : ABSENT, two[i]);
-            if (!result.isDeepCopy)
+            for (int index = 0; index < common; index++)
             {
-                return result;
+                final DeepCopyMatchResult stopped = stoppedAt(index);
+                if (stopped != null)
+                {
+                    return stopped;
+                }
+                if (!tolerance.matches(one[index], two[index]))
+                {
+                    fieldPath.push("[" + index + "]");
+                    return valueNotEqual(one[index], two[index]);
+                }
             }
+        }
 
-            fieldPath.pop();
+        if (one.length != two.length)
+        {
+            fieldPath.push("[" + common + "]");
+            return one.length > common ? valueNotEqual(one[common], ABSENT) : valueNotEqual(ABSENT, two[common]);
         }
         return DeepCopyMatchResult.success();
     }
 
     private DeepCopyMatchResult doubleArrayMatch(double[] one, double[] two)
     {
-        for (int i = 0; i < one.length; i++)
+        final int common = Math.min(one.length, two.length);
+        if (tolerance.acceptsIdentical())
         {
-            fieldPath.push("[" + i + "]");
-
-            final DeepCopyMatchResult result =
-                performValueTypeMatch(one[i], i < two.length ? two[i] : ABSENT);
-            if (!result.isDeepCopy)
+            int from = 0;
+            while (from < common)
             {
-                return result;
+                final DeepCopyMatchResult stopped = stoppedAt(from);
+                if (stopped != null)
+                {
+                    return stopped;
+                }
+                final int to = chunkEnd(from, common);
+                final int mismatch = Arrays.mismatch(one, from, to, two, from, to);
+                if (mismatch < 0)
+                {
+                    from = to;
+                    continue;
+                }
+                final int index = from + mismatch;
+                if (!tolerance.matches(one[index], two[index]))
+                {
+                    fieldPath.push("[" + index + "]");
+                    return valueNotEqual(one[index], two[index]);
+                }
+                from = index + 1;
             }
-
-            fieldPath.pop();
         }
-        for (int i = 0; i < two.length; i++)
+        else
         {
-            fieldPath.push("[" + i + "]");
-
-            final DeepCopyMatchResult result =
-                performValueTypeMatch(i < one.length ? one[i] : ABSENT, two[i]);
-            if (!result.isDeepCopy)
+            for (int index = 0; index < common; index++)
             {
-                return result;
+                final DeepCopyMatchResult stopped = stoppedAt(index);
+                if (stopped != null)
+                {
+                    return stopped;
+                }
+                if (!tolerance.matches(one[index], two[index]))
+                {
+                    fieldPath.push("[" + index + "]");
+                    return valueNotEqual(one[index], two[index]);
+                }
             }
+        }
 
-            fieldPath.pop();
+        if (one.length != two.length)
+        {
+            fieldPath.push("[" + common + "]");
+            return one.length > common ? valueNotEqual(one[common], ABSENT) : valueNotEqual(ABSENT, two[common]);
         }
         return DeepCopyMatchResult.success();
     }
@@ -352,6 +858,11 @@ public final class DeepCopyAssertion
     {
         for (int i = 0; i < one.length; i++)
         {
+            final DeepCopyMatchResult stopped = stoppedAt(i);
+            if (stopped != null)
+            {
+                return stopped;
+            }
             fieldPath.push("[" + i + "]");
 
             final DeepCopyMatchResult result =
@@ -365,6 +876,11 @@ public final class DeepCopyAssertion
         }
         for (int i = 0; i < two.length; i++)
         {
+            final DeepCopyMatchResult stopped = stoppedAt(i);
+            if (stopped != null)
+            {
+                return stopped;
+            }
             fieldPath.push("[" + i + "]");
 
             final DeepCopyMatchResult result =
@@ -379,11 +895,87 @@ public final class DeepCopyAssertion
         return DeepCopyMatchResult.success();
     }
 
+    private DeepCopyMatchResult shortArrayMatch(short[] one, short[] two)
+    {
+        final int common = Math.min(one.length, two.length);
+        for (int from = 0, to; from < common; from = to)
+        {
+            final DeepCopyMatchResult stopped = stoppedAt(from);
+            if (stopped != null)
+            {
+                return stopped;
+            }
+            to = chunkEnd(from, common);
+            final int mismatch = Arrays.mismatch(one, from, to, two, from, to);
+            if (mismatch >= 0)
+            {
+                return elementNotEqual(from + mismatch, one[from + mismatch], two[from + mismatch]);
+            }
+        }
+
+        if (one.length != two.length)
+        {
+            return one.length > common ?
+                elementNotEqual(common, one[common], ABSENT) :
+                elementNotEqual(common, ABSENT, two[common]);
+        }
+        return DeepCopyMatchResult.success();
+    }
+
+    private DeepCopyMatchResult charArrayMatch(char[] one, char[] two)
+    {
+        final int common = Math.min(one.length, two.length);
+        for (int from = 0, to; from < common; from = to)
+        {
+            final DeepCopyMatchResult stopped = stoppedAt(from);
+            if (stopped != null)
+            {
+                return stopped;
+            }
+            to = chunkEnd(from, common);
+            final int mismatch = Arrays.mismatch(one, from, to, two, from, to);
+            if (mismatch >= 0)
+            {
+                return elementNotEqual(from + mismatch, one[from + mismatch], two[from + mismatch]);
+            }
+        }
+
+        if (one.length != two.length)
+        {
+            return one.length > common ?
+                elementNotEqual(common, one[common], ABSENT) :
+                elementNotEqual(common, ABSENT, two[common]);
+        }
+        return DeepCopyMatchResult.success();
+    }
+
     private DeepCopyMatchResult collectionTypeMatch(Object one, Object two)
     {
         final Collection listOne = (Collection) one;
         final Collection listTwo = (Collection) two;
 
+        if (sampling != null)
+        {
+            if (listOne.size() == listTwo.size())
+            {
+                return sampledMatch(listOne, listTwo, "at(", ")");
+            }
+            elementsSeen += listOne.size();
+            elementsChecked += listOne.size();
+        }
+
+        switch (CollectionStrategy.of(listOne.getClass()))
+        {
+            case INDEXED:
+                return indexedMatch((List<?>) listOne, (List<?>) listTwo);
+            case SNAPSHOT:
+                return indexedMatch(Arrays.asList(listOne.toArray()), Arrays.asList(listTwo.toArray()));
+            case ITERATED:
+                return iteratedMatch(listOne.iterator(), listTwo.iterator());
+            default:
+                break;
+        }
+
         int index = 0;
         Iterator primaryIterator = listOne.iterator();
         Iterator secondaryIterator = listTwo.iterator();
@@ -397,7 +989,7 @@ public final class DeepCopyAssertion
                 return valueNotEqual(fromListOne, ABSENT);
             }
 
-            final DeepCopyMatchResult match = matches(fromListOne, secondaryIterator.next());
+            final DeepCopyMatchResult match = match(fromListOne, secondaryIterator.next());
 
             if (!match.isDeepCopy)
             {
@@ -408,21 +1000,76 @@ public final class DeepCopyAssertion
             ++index;
         }
 
-        primaryIterator = listTwo.iterator();
-        secondaryIterator = listOne.iterator();
-        index = 0;
-        while (primaryIterator.hasNext())
+        final boolean suspended = profileSuspended;
+        profileSuspended = true;
+        try
+        {
+            primaryIterator = listTwo.iterator();
+            secondaryIterator = listOne.iterator();
+            index = 0;
+            while (primaryIterator.hasNext())
+            {
+                final Object fromListTwo = primaryIterator.next();
+                fieldPath.push("at(" + index + ")");
+
+                if (!secondaryIterator.hasNext())
+                {
+                    return valueNotEqual(ABSENT, fromListTwo);
+                }
+
+                final DeepCopyMatchResult match = match(secondaryIterator.next(), fromListTwo);
+
+                if (!match.isDeepCopy)
+                {
+                    return match;
+                }
+
+                fieldPath.pop();
+                ++index;
+            }
+        }
+        finally
+        {
+            profileSuspended = suspended;
+        }
+
+        return DeepCopyMatchResult.success();
+    }
+
+    private DeepCopyMatchResult indexedMatch(List<?> one, List<?> two)
+    {
+        final int common = Math.min(one.size(), two.size());
+        for (int index = 0; index < common; index++)
         {
-            final Object fromListTwo = primaryIterator.next();
             fieldPath.push("at(" + index + ")");
 
-            if (!secondaryIterator.hasNext())
+            final DeepCopyMatchResult match = match(one.get(index), two.get(index));
+            if (!match.isDeepCopy)
             {
-                return valueNotEqual(ABSENT, fromListTwo);
+                return match;
             }
 
-            final DeepCopyMatchResult match = matches(secondaryIterator.next(), fromListTwo);
+            fieldPath.pop();
+        }
+
+        if (one.size() != two.size())
+        {
+            fieldPath.push("at(" + common + ")");
+            return one.size() > common ?
+                valueNotEqual(one.get(common), ABSENT) :
+                valueNotEqual(ABSENT, two.get(common));
+        }
+        return DeepCopyMatchResult.success();
+    }
+
+    private DeepCopyMatchResult iteratedMatch(Iterator<?> one, Iterator<?> two)
+    {
+        int index = 0;
+        while (one.hasNext() && two.hasNext())
+        {
+            fieldPath.push("at(" + index + ")");
 
+            final DeepCopyMatchResult match = match(one.next(), two.next());
             if (!match.isDeepCopy)
             {
                 return match;
@@ -432,19 +1079,136 @@ public final class DeepCopyAssertion
             ++index;
         }
 
+        if (one.hasNext() || two.hasNext())
+        {
+            fieldPath.push("at(" + index + ")");
+            return one.hasNext() ? valueNotEqual(one.next(), ABSENT) : valueNotEqual(ABSENT, two.next());
+        }
+        return DeepCopyMatchResult.success();
+    }
+
+    private DeepCopyMatchResult sharedImmutableMatch(Object container)
+    {
+        if (container instanceof Map)
+        {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) container).entrySet())
+            {
+                fieldPath.push(new MapKey(entry.getKey()));
+
+                DeepCopyMatchResult result = match(entry.getKey(), entry.getKey());
+                if (result.isDeepCopy)
+                {
+                    result = match(entry.getValue(), entry.getValue());
+                }
+                if (!result.isDeepCopy)
+                {
+                    return result;
+                }
+
+                fieldPath.pop();
+            }
+            return DeepCopyMatchResult.success();
+        }
+
+        int index = 0;
+        for (Object element : (Collection<?>) container)
+        {
+            fieldPath.push("at(" + index + ")");
+
+            final DeepCopyMatchResult result = match(element, element);
+            if (!result.isDeepCopy)
+            {
+                return result;
+            }
+
+            fieldPath.pop();
+            ++index;
+        }
+        return DeepCopyMatchResult.success();
+    }
+
+    private DeepCopyMatchResult sampledMatch(Collection<?> one, Collection<?> two, String open, String close)
+    {
+        final int size = one.size();
+        final int sampleSize = sampling.sampleSize(size);
+        final long deadline = sampling.deadline(System.nanoTime());
+        elementsSeen += size;
+
+        if (one instanceof RandomAccess && two instanceof RandomAccess)
+        {
+            final List<?> listOne = (List<?>) one;
+            final List<?> listTwo = (List<?>) two;
+            final int start = size == 0 ? 0 : sampleRandom.nextInt(size);
+            final int stride = Sampling.coprimeStride(size, sampleRandom);
+            for (int i = 0; i < sampleSize && !Sampling.expired(deadline, i); i++)
+            {
+                final int index = (int) ((start + (long) i * stride) % size);
+                final DeepCopyMatchResult result =
+                    sampledElementMatch(listOne.get(index), listTwo.get(index), open + index + close);
+                if (!result.isDeepCopy)
+                {
+                    return result;
+                }
+            }
+            return DeepCopyMatchResult.success();
+        }
+
+        final double probability = size == 0 ? 0 : (double) sampleSize / size;
+        final Iterator<?> iteratorOne = one.iterator();
+        final Iterator<?> iteratorTwo = two.iterator();
+        int checked = 0;
+        for (int index = 0; index < size && checked < sampleSize && !Sampling.expired(deadline, index); index++)
+        {
+            final DeepCopyMatchResult stopped = stoppedAt(index, open, close);
+            if (stopped != null)
+            {
+                return stopped;
+            }
+            final Object fromOne = iteratorOne.next();
+            final Object fromTwo = iteratorTwo.next();
+            if (sampleRandom.nextDouble() < probability)
+            {
+                final DeepCopyMatchResult result = sampledElementMatch(fromOne, fromTwo, open + index + close);
+                if (!result.isDeepCopy)
+                {
+                    return result;
+                }
+                ++checked;
+            }
+        }
         return DeepCopyMatchResult.success();
     }
 
+    private DeepCopyMatchResult sampledElementMatch(Object one, Object two, String segment)
+    {
+        fieldPath.push(segment);
+        ++elementsChecked;
+
+        final DeepCopyMatchResult result = match(one, two);
+        if (!result.isDeepCopy)
+        {
+            return result;
+        }
+
+        fieldPath.pop();
+        return result;
+    }
+
     private DeepCopyMatchResult mapTypeMatch(Object one, Object two)
     {
         final Map mapOne = (Map) one;
         final Map mapTwo = (Map) two;
+        if (mapComparison == MapComparison.KEYS_AND_VALUES)
+        {
+            return pairedMapMatch(mapOne, mapTwo);
+        }
+
         for (Object o : mapOne.entrySet())
         {
             final Object key = ((Map.Entry) o).getKey();
-            fieldPath.push("get(" + key.toString() + ")");
+            fieldPath.push(new MapKey(key));
 
-            final DeepCopyMatchResult result = matches(mapOne.get(key), mapTwo.get(key));
+            final DeepCopyMatchResult result = match(mapOne.get(key), mapTwo.get(key));
             if (!result.isDeepCopy)
             {
                 return result;
@@ -453,25 +1217,161 @@ public final class DeepCopyAssertion
             fieldPath.pop();
         }
 
-        for (Object o : mapTwo.entrySet())
+        final boolean suspended = profileSuspended;
+        profileSuspended = true;
+        try
         {
-            final Object key = ((Map.Entry) o).getKey();
-            fieldPath.push("get(" + key.toString() + ")");
+            for (Object o : mapTwo.entrySet())
+            {
+                final Object key = ((Map.Entry) o).getKey();
+                fieldPath.push(new MapKey(key));
 
-            final DeepCopyMatchResult result = matches(mapOne.get(key), mapTwo.get(key));
+                final DeepCopyMatchResult result = match(mapOne.get(key), mapTwo.get(key));
+                if (!result.isDeepCopy)
+                {
+                    return result;
+                }
+
+                fieldPath.pop();
+            }
+        }
+        finally
+        {
+            profileSuspended = suspended;
+        }
+
+        return DeepCopyMatchResult.success();
+    }
+
+    private DeepCopyMatchResult pairedMapMatch(Map<?, ?> one, Map<?, ?> two)
+    {
+        if (one instanceof SortedMap &&
+            Objects.equals(((SortedMap<?, ?>) one).comparator(), ((SortedMap<?, ?>) two).comparator()))
+        {
+            return sortedMapMatch(one, two, ((SortedMap<?, ?>) one).comparator());
+        }
+
+        final Iterator<? extends Map.Entry<?, ?>> iteratorOne = one.entrySet().iterator();
+        final Iterator<? extends Map.Entry<?, ?>> iteratorTwo = two.entrySet().iterator();
+        Map<Object, Map.Entry<?, ?>> unpaired = null;
+        while (iteratorOne.hasNext())
+        {
+            final Map.Entry<?, ?> entryOne = iteratorOne.next();
+            Map.Entry<?, ?> entryTwo;
+            if (unpaired == null)
+            {
+                entryTwo = iteratorTwo.hasNext() ? iteratorTwo.next() : null;
+                if (entryTwo == null || !Objects.equals(entryOne.getKey(), entryTwo.getKey()))
+                {
+                    unpaired = new HashMap<>();
+                    if (entryTwo != null)
+                    {
+                        unpaired.put(entryTwo.getKey(), entryTwo);
+                    }
+                    while (iteratorTwo.hasNext())
+                    {
+                        final Map.Entry<?, ?> remaining = iteratorTwo.next();
+                        unpaired.put(remaining.getKey(), remaining);
+                    }
+                    entryTwo = unpaired.remove(entryOne.getKey());
+                }
+            }
+            else
+            {
+                entryTwo = unpaired.remove(entryOne.getKey());
+            }
+
+            final DeepCopyMatchResult result = entryMatch(entryOne, entryTwo);
             if (!result.isDeepCopy)
             {
                 return result;
             }
+        }
 
-            fieldPath.pop();
+        if (unpaired != null && !unpaired.isEmpty())
+        {
+            return entryMatch(null, unpaired.values().iterator().next());
         }
+        if (unpaired == null && iteratorTwo.hasNext())
+        {
+            return entryMatch(null, iteratorTwo.next());
+        }
+        return DeepCopyMatchResult.success();
+    }
 
+    @SuppressWarnings("unchecked")
+    private DeepCopyMatchResult sortedMapMatch(Map<?, ?> one, Map<?, ?> two, Comparator<?> comparator)
+    {
+        final Comparator<Object> order =
+            comparator == null ? (a, b) -> ((Comparable<Object>) a).compareTo(b) : (Comparator<Object>) comparator;
+        final Iterator<? extends Map.Entry<?, ?>> iteratorOne = one.entrySet().iterator();
+        final Iterator<? extends Map.Entry<?, ?>> iteratorTwo = two.entrySet().iterator();
+        Map.Entry<?, ?> entryOne = iteratorOne.hasNext() ? iteratorOne.next() : null;
+        Map.Entry<?, ?> entryTwo = iteratorTwo.hasNext() ? iteratorTwo.next() : null;
+        while (entryOne != null || entryTwo != null)
+        {
+            final int comparison =
+                entryOne == null ? 1 : entryTwo == null ? -1 : order.compare(entryOne.getKey(), entryTwo.getKey());
+            if (comparison != 0)
+            {
+                return comparison < 0 ? entryMatch(entryOne, null) : entryMatch(null, entryTwo);
+            }
+
+            final DeepCopyMatchResult result = entryMatch(entryOne, entryTwo);
+            if (!result.isDeepCopy)
+            {
+                return result;
+            }
+
+            entryOne = iteratorOne.hasNext() ? iteratorOne.next() : null;
+            entryTwo = iteratorTwo.hasNext() ? iteratorTwo.next() : null;
+        }
         return DeepCopyMatchResult.success();
     }
 
+    private DeepCopyMatchResult entryMatch(Map.Entry<?, ?> one, Map.Entry<?, ?> two)
+    {
+        fieldPath.push(new MapKey(one == null ? two.getKey() : one.getKey()));
+        if (one == null)
+        {
+            return valueNotEqual(ABSENT, two.getValue());
+        }
+        if (two == null)
+        {
+            return valueNotEqual(one.getValue(), ABSENT);
+        }
+
+        fieldPath.push(KEY);
+        DeepCopyMatchResult result = match(one.getKey(), two.getKey());
+        if (!result.isDeepCopy)
+        {
+            return result;
+        }
+        fieldPath.pop();
+
+        result = match(one.getValue(), two.getValue());
+        if (!result.isDeepCopy)
+        {
+            return result;
+        }
+
+        fieldPath.pop();
+        return result;
+    }
+
     private DeepCopyMatchResult performValueTypeMatch(Object one, Object two)
     {
+        if (!tolerance.isExact() && one instanceof Double && two instanceof Double)
+        {
+            return tolerance.matches((double) (Double) one, (double) (Double) two) ?
+                DeepCopyMatchResult.success() : valueNotEqual(one, two);
+        }
+        if (!tolerance.isExact() && one instanceof Float && two instanceof Float)
+        {
+            return tolerance.matches((float) (Float) one, (float) (Float) two) ?
+                DeepCopyMatchResult.success() : valueNotEqual(one, two);
+        }
+
         if (!one.equals(two))
         {
             return valueNotEqual(one, two);
@@ -482,9 +1382,10 @@ public final class DeepCopyAssertion
         }
     }
 
-    private boolean isValueType(Object one)
+    private DeepCopyMatchResult elementNotEqual(int index, Object first, Object second)
     {
-        return valueTypes.contains(one.getClass());
+        fieldPath.push("[" + index + "]");
+        return valueNotEqual(first, second);
     }
 
     private DeepCopyMatchResult valueNotEqual(Object first, Object second)
@@ -493,9 +1394,19 @@ public final class DeepCopyAssertion
     }
 
     private DeepCopyMatchResult fail(String message)
+    {
+        return failure(fieldPath, message);
+    }
+
+    static DeepCopyMatchResult failure(Iterable<?> path, String message)
+    {
+        return DeepCopyMatchResult.failure(describe(path, message));
+    }
+
+    static String describe(Iterable<?> path, String message)
     {
         final StringBuilder builder = new StringBuilder();
-        for (String piece : fieldPath)
+        for (Object piece : path)
         {
             builder.append(piece);
             builder.append("->");
@@ -504,8 +1415,6 @@ public final class DeepCopyAssertion
 
         String fieldPath = builder.toString();
 
-        return DeepCopyMatchResult.failure(
-            fieldPath + ": " + message
-        );
+        return fieldPath + ": " + message;
     }
 }
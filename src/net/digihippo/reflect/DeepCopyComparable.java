@@ -0,0 +1,17 @@
+package net.digihippo.reflect;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Asks {@code DeepCopyComparatorProcessor} to generate a {@link GeneratedComparator} for the
+ * annotated class at compile time, so that {@link DeepCopyAssertion} can compare its fields
+ * without reflection. The class and its fields must not be private.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface DeepCopyComparable
+{
+}
@@ -3,12 +3,33 @@ package net.digihippo.reflect;
 public final class DeepCopyMatchResult
 {
     public final boolean isDeepCopy;
+    public final boolean isInconclusive;
+    public final boolean isConcurrentlyModified;
     public final String failureDescription;
+    public final double coverage;
 
     public DeepCopyMatchResult(boolean isDeepCopy, String failureDescription)
+    {
+        this(isDeepCopy, false, failureDescription, 1.0);
+    }
+
+    public DeepCopyMatchResult(boolean isDeepCopy, boolean isInconclusive, String failureDescription, double coverage)
+    {
+        this(isDeepCopy, isInconclusive, false, failureDescription, coverage);
+    }
+
+    private DeepCopyMatchResult(
+        boolean isDeepCopy,
+        boolean isInconclusive,
+        boolean isConcurrentlyModified,
+        String failureDescription,
+        double coverage)
     {
         this.isDeepCopy = isDeepCopy;
+        this.isInconclusive = isInconclusive;
+        this.isConcurrentlyModified = isConcurrentlyModified;
         this.failureDescription = failureDescription;
+        this.coverage = coverage;
     }
 
     public static DeepCopyMatchResult failure(String failureMessage)
@@ -16,8 +37,23 @@ public final class DeepCopyMatchResult
         return new DeepCopyMatchResult(false, failureMessage);
     }
 
+    public static DeepCopyMatchResult inconclusive(String reason)
+    {
+        return new DeepCopyMatchResult(false, true, reason, 1.0);
+    }
+
+    public static DeepCopyMatchResult concurrentlyModified(String reason)
+    {
+        return new DeepCopyMatchResult(false, true, true, reason, 1.0);
+    }
+
     public static DeepCopyMatchResult success()
     {
         return new DeepCopyMatchResult(true, null);
     }
+
+    DeepCopyMatchResult withCoverage(double coverage)
+    {
+        return new DeepCopyMatchResult(isDeepCopy, isInconclusive, isConcurrentlyModified, failureDescription, coverage);
+    }
 }
@@ -0,0 +1,100 @@
+package net.digihippo.reflect;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The worker half of {@link DistributedDeepCopyVerifier}, started in its own JVM with the
+ * coordinator's port and any additional immutable type names as arguments.
+ */
+public final class DeepCopyWorker
+{
+    static final byte RESULT = 0;
+    static final byte ERROR = 1;
+
+    private DeepCopyWorker()
+    {
+    }
+
+    public static void main(String[] args) throws IOException, ClassNotFoundException
+    {
+        final Class<?>[] additionalImmutableTypes = new Class<?>[args.length - 1];
+        for (int i = 1; i < args.length; i++)
+        {
+            additionalImmutableTypes[i - 1] = Class.forName(args[i]);
+        }
+        final DeepCopyAssertion assertion = new DeepCopyAssertion(additionalImmutableTypes);
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0])))
+        {
+            socket.setTcpNoDelay(true);
+            final DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            output.writeLong(ProcessHandle.current().pid());
+            output.flush();
+            while (true)
+            {
+                final int partition;
+                try
+                {
+                    partition = input.readInt();
+                }
+                catch (EOFException e)
+                {
+                    return;
+                }
+                final byte[] request = new byte[input.readInt()];
+                input.readFully(request);
+
+                output.writeInt(partition);
+                try
+                {
+                    final DeepCopyMatchResult result = read(request).verify(assertion);
+                    output.writeByte(RESULT);
+                    output.writeBoolean(result.isDeepCopy);
+                    writeString(output, result.failureDescription);
+                }
+                catch (IOException | ClassNotFoundException | RuntimeException e)
+                {
+                    output.writeByte(ERROR);
+                    writeString(output, e.toString());
+                }
+                output.flush();
+            }
+        }
+    }
+
+    static void writeString(DataOutputStream output, String value) throws IOException
+    {
+        if (value == null)
+        {
+            output.writeInt(-1);
+            return;
+        }
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    static String readString(DataInputStream input) throws IOException
+    {
+        final int length = input.readInt();
+        if (length < 0)
+        {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Partition read(byte[] request) throws IOException, ClassNotFoundException
+    {
+        try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(request)))
+        {
+            return (Partition) objects.readObject();
+        }
+    }
+}
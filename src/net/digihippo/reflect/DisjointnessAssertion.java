@@ -0,0 +1,174 @@
+package net.digihippo.reflect;
+
+import java.util.*;
+
+/**
+ * Checks only that two graphs share no mutable instances, without comparing any values. Useful
+ * when equality is already established elsewhere and only the depth of the copy is in question.
+ */
+public final class DisjointnessAssertion
+{
+    private final ValueTypes valueTypes;
+    private final Stack<Object> fieldPath = new Stack<>();
+
+    public DisjointnessAssertion(Class<?>... additionalImmutableTypes)
+    {
+        this.valueTypes = new ValueTypes(additionalImmutableTypes);
+    }
+
+    public DeepCopyMatchResult matches(Object one, Object two)
+    {
+        final IdentitySet fromOne = new IdentitySet();
+        collect(one, fromOne);
+
+        fieldPath.clear();
+        fieldPath.push("root");
+        return search(two, fromOne, new IdentitySet());
+    }
+
+    private void collect(Object node, IdentitySet seen)
+    {
+        final Deque<Object> pending = new ArrayDeque<>();
+        pending.push(node);
+        while (!pending.isEmpty())
+        {
+            final Object current = pending.pop();
+            if (isLeaf(current) || !seen.add(current))
+            {
+                continue;
+            }
+
+            if (current instanceof Object[])
+            {
+                for (Object element : (Object[]) current)
+                {
+                    pushIfPresent(pending, element);
+                }
+            }
+            else if (current instanceof Map)
+            {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) current).entrySet())
+                {
+                    pushIfPresent(pending, entry.getKey());
+                    pushIfPresent(pending, entry.getValue());
+                }
+            }
+            else if (current instanceof Collection)
+            {
+                for (Object element : (Collection<?>) current)
+                {
+                    pushIfPresent(pending, element);
+                }
+            }
+            else if (!current.getClass().isArray())
+            {
+                final ClassPlan plan = ClassPlan.of(current.getClass());
+                for (int i = 0; plan.accessible && i < plan.fields.length; i++)
+                {
+                    if (!plan.fields[i].getType().isPrimitive())
+                    {
+                        pushIfPresent(pending, plan.get(i, current));
+                    }
+                }
+            }
+        }
+    }
+
+    private DeepCopyMatchResult search(Object node, IdentitySet fromOne, IdentitySet seen)
+    {
+        if (node == null || isLeaf(node) || !seen.add(node))
+        {
+            return DeepCopyMatchResult.success();
+        }
+
+        if (fromOne.contains(node) && !CollectionStrategy.isImmutable(node.getClass()))
+        {
+            return DeepCopyAssertion.failure(fieldPath, "The same instance cannot be a deep copy of itself");
+        }
+
+        if (node instanceof Object[])
+        {
+            final Object[] elements = (Object[]) node;
+            for (int i = 0; i < elements.length; i++)
+            {
+                final DeepCopyMatchResult result = searchChild("[" + i + "]", elements[i], fromOne, seen);
+                if (!result.isDeepCopy)
+                {
+                    return result;
+                }
+            }
+        }
+        else if (node instanceof Map)
+        {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) node).entrySet())
+            {
+                final Object key = entry.getKey();
+                final Object segment = new DeepCopyAssertion.MapKey(key);
+                DeepCopyMatchResult result = searchChild(segment, key, fromOne, seen);
+                if (result.isDeepCopy)
+                {
+                    result = searchChild(segment, entry.getValue(), fromOne, seen);
+                }
+                if (!result.isDeepCopy)
+                {
+                    return result;
+                }
+            }
+        }
+        else if (node instanceof Collection)
+        {
+            int index = 0;
+            for (Object element : (Collection<?>) node)
+            {
+                final DeepCopyMatchResult result = searchChild("at(" + index++ + ")", element, fromOne, seen);
+                if (!result.isDeepCopy)
+                {
+                    return result;
+                }
+            }
+        }
+        else if (!node.getClass().isArray())
+        {
+            final ClassPlan plan = ClassPlan.of(node.getClass());
+            for (int i = 0; plan.accessible && i < plan.fields.length; i++)
+            {
+                if (plan.fields[i].getType().isPrimitive())
+                {
+                    continue;
+                }
+
+                final DeepCopyMatchResult result =
+                    searchChild(plan.fields[i].getName(), plan.get(i, node), fromOne, seen);
+                if (!result.isDeepCopy)
+                {
+                    return result;
+                }
+            }
+        }
+        return DeepCopyMatchResult.success();
+    }
+
+    private DeepCopyMatchResult searchChild(Object segment, Object child, IdentitySet fromOne, IdentitySet seen)
+    {
+        fieldPath.push(segment);
+        final DeepCopyMatchResult result = search(child, fromOne, seen);
+        if (result.isDeepCopy)
+        {
+            fieldPath.pop();
+        }
+        return result;
+    }
+
+    private boolean isLeaf(Object node)
+    {
+        return valueTypes.contains(node.getClass()) || node instanceof Enum;
+    }
+
+    private static void pushIfPresent(Deque<Object> pending, Object node)
+    {
+        if (node != null)
+        {
+            pending.push(node);
+        }
+    }
+}
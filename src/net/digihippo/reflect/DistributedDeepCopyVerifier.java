@@ -0,0 +1,487 @@
+package net.digihippo.reflect;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Verifies large, partitioned graphs across several local worker JVMs. When both roots are maps,
+ * their entries are split into contiguous runs in the original's iteration order; when both are
+ * object arrays, their indices are. Each run is serialised and verified by a worker, and the
+ * failure in the earliest failing partition is reported. Anything else is verified in process.
+ * <p>
+ * Partitions travel by Java serialisation, so their contents must be {@link Serializable}.
+ * Serialisation would silently drop {@code transient} fields that verification compares, so a
+ * partition holding an instance of such a class is rejected with a
+ * {@link NotSerializableException}; maps and collections are compared by content and are exempt.
+ * Sharing is only detected between instances within the same partition.
+ * <p>
+ * A worker that does not answer within the worker timeout, one minute unless changed with
+ * {@link #withWorkerTimeout(Duration)}, fails the verification and is dropped.
+ */
+public final class DistributedDeepCopyVerifier implements Closeable
+{
+    private static final int PARTITIONS_PER_WORKER = 4;
+    private static final int CONNECT_TIMEOUT_MILLIS = 30_000;
+    private static final int WORKER_TIMEOUT_MILLIS = 60_000;
+
+    private static final class Worker
+    {
+        private final Process process;
+        private final Socket socket;
+        private final DataInputStream input;
+        private final DataOutputStream output;
+
+        private Worker(List<Process> processes, Socket socket) throws IOException
+        {
+            this.socket = socket;
+            this.input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            this.process = processFor(processes, input.readLong());
+        }
+
+        private static Process processFor(List<Process> processes, long pid) throws IOException
+        {
+            for (Process process : processes)
+            {
+                if (process.pid() == pid)
+                {
+                    return process;
+                }
+            }
+            throw new IOException("A worker connected from unknown process " + pid);
+        }
+    }
+
+    private static final class FieldCheckingOutputStream extends ObjectOutputStream
+    {
+        private static final ClassValue<String> DROPPED_FIELDS = new ClassValue<String>()
+        {
+            @Override
+            protected String computeValue(Class<?> type)
+            {
+                if (Map.class.isAssignableFrom(type) || Collection.class.isAssignableFrom(type))
+                {
+                    return null;
+                }
+                final ClassPlan plan = ClassPlan.of(type);
+                if (!plan.accessible)
+                {
+                    return null;
+                }
+                for (Field field : plan.fields)
+                {
+                    if (Modifier.isTransient(field.getModifiers()))
+                    {
+                        return field.getName();
+                    }
+                }
+                return null;
+            }
+        };
+
+        private FieldCheckingOutputStream(OutputStream output) throws IOException
+        {
+            super(output);
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object object) throws IOException
+        {
+            final String dropped = DROPPED_FIELDS.get(object.getClass());
+            if (dropped != null)
+            {
+                throw new NotSerializableException(
+                    object.getClass().getName() + " has transient field " + dropped +
+                    ", which serialisation would not carry to a worker");
+            }
+            return object;
+        }
+    }
+
+    private static final class WorkerFailedException extends IOException
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final boolean workerLost;
+
+        private WorkerFailedException(String message, boolean workerLost)
+        {
+            super(message);
+            this.workerLost = workerLost;
+        }
+    }
+
+    private final Class<?>[] additionalImmutableTypes;
+    private final List<Worker> workers = new ArrayList<>();
+    private final ExecutorService dispatchers;
+
+    public DistributedDeepCopyVerifier(int workerCount, Class<?>... additionalImmutableTypes) throws IOException
+    {
+        if (workerCount <= 0)
+        {
+            throw new IllegalArgumentException("At least one worker is needed, not " + workerCount);
+        }
+        this.additionalImmutableTypes = additionalImmutableTypes;
+
+        final List<Process> processes = new ArrayList<>();
+        try (ServerSocket server = new ServerSocket(0, workerCount, InetAddress.getLoopbackAddress()))
+        {
+            server.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+            for (int i = 0; i < workerCount; i++)
+            {
+                processes.add(launch(server.getLocalPort()));
+            }
+            for (int i = 0; i < workerCount; i++)
+            {
+                final Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(WORKER_TIMEOUT_MILLIS);
+                workers.add(new Worker(processes, socket));
+            }
+        }
+        catch (IOException e)
+        {
+            for (Process process : processes)
+            {
+                process.destroyForcibly();
+            }
+            throw e;
+        }
+
+        this.dispatchers = Executors.newFixedThreadPool(workerCount, runnable ->
+        {
+            final Thread thread = new Thread(runnable, "deep-copy-coordinator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public DistributedDeepCopyVerifier withWorkerTimeout(Duration timeout) throws IOException
+    {
+        final int millis = (int) Math.min(Integer.MAX_VALUE, Math.max(1, timeout.toMillis()));
+        for (Worker worker : workers)
+        {
+            worker.socket.setSoTimeout(millis);
+        }
+        return this;
+    }
+
+    public PartitionedMatchResult verify(Object one, Object two) throws IOException
+    {
+        if (one == null || two == null || one == two || !one.getClass().equals(two.getClass()))
+        {
+            return local(one, two);
+        }
+        if (one instanceof Map)
+        {
+            return verifyMaps((Map<?, ?>) one, (Map<?, ?>) two);
+        }
+        if (one instanceof Object[])
+        {
+            return verifyArrays((Object[]) one, (Object[]) two);
+        }
+        return local(one, two);
+    }
+
+    private PartitionedMatchResult verifyMaps(Map<?, ?> one, Map<?, ?> two) throws IOException
+    {
+        final int size = one.size();
+        final int partitionCount = partitionCount(size);
+        final List<Partition> partitions = new ArrayList<>(partitionCount);
+        final Iterator<? extends Map.Entry<?, ?>> entries = one.entrySet().iterator();
+        for (int partition = 0; partition < partitionCount; partition++)
+        {
+            final int length = end(partition, partitionCount, size) - end(partition - 1, partitionCount, size);
+            final Object[] keys = new Object[length];
+            final Object[] ones = new Object[length];
+            final Object[] twos = new Object[length];
+            for (int i = 0; i < length; i++)
+            {
+                final Map.Entry<?, ?> entry = entries.next();
+                keys[i] = entry.getKey();
+                ones[i] = entry.getValue();
+                twos[i] = two.get(entry.getKey());
+            }
+            partitions.add(Partition.keyed(keys, ones, twos));
+        }
+
+        final PartitionedMatchResult result = dispatch(partitions);
+        if (!result.isDeepCopy)
+        {
+            return result;
+        }
+
+        for (Map.Entry<?, ?> entry : two.entrySet())
+        {
+            if (!one.containsKey(entry.getKey()))
+            {
+                return PartitionedMatchResult.failure(
+                    DeepCopyAssertion.describe(
+                        Arrays.asList("root", new DeepCopyAssertion.MapKey(entry.getKey())),
+                        "null != " + entry.getValue()),
+                    partitionCount,
+                    PartitionedMatchResult.COORDINATOR);
+            }
+        }
+        return result;
+    }
+
+    private PartitionedMatchResult verifyArrays(Object[] one, Object[] two) throws IOException
+    {
+        final int common = Math.min(one.length, two.length);
+        final int partitionCount = partitionCount(common);
+        final List<Partition> partitions = new ArrayList<>(partitionCount);
+        for (int partition = 0; partition < partitionCount; partition++)
+        {
+            final int from = end(partition - 1, partitionCount, common);
+            final int to = end(partition, partitionCount, common);
+            partitions.add(Partition.indexed(from, Arrays.copyOfRange(one, from, to), Arrays.copyOfRange(two, from, to)));
+        }
+
+        final PartitionedMatchResult result = dispatch(partitions);
+        if (!result.isDeepCopy || one.length == two.length)
+        {
+            return result;
+        }
+
+        final String difference = one.length > common ? one[common] + " != <absent>" : "<absent> != " + two[common];
+        return PartitionedMatchResult.failure(
+            DeepCopyAssertion.describe(Arrays.asList("root", "[" + common + "]"), difference),
+            partitionCount,
+            PartitionedMatchResult.COORDINATOR);
+    }
+
+    private PartitionedMatchResult dispatch(List<Partition> partitions) throws IOException
+    {
+        if (workers.isEmpty())
+        {
+            throw new IOException("No workers are left to verify partitions");
+        }
+
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger firstFailure = new AtomicInteger(Integer.MAX_VALUE);
+        final AtomicBoolean aborted = new AtomicBoolean();
+        final String[] failures = new String[partitions.size()];
+        final List<Worker> broken = Collections.synchronizedList(new ArrayList<>());
+
+        final List<Future<Void>> running = new ArrayList<>(workers.size());
+        for (Worker worker : workers)
+        {
+            running.add(dispatchers.submit(() ->
+            {
+                try
+                {
+                    int partition;
+                    while (!aborted.get() &&
+                        (partition = next.getAndIncrement()) < partitions.size() &&
+                        partition < firstFailure.get())
+                    {
+                        final byte[] request = serialise(partitions.get(partition));
+                        final String failure;
+                        try
+                        {
+                            failure = exchange(worker, partition, request);
+                        }
+                        catch (WorkerFailedException e)
+                        {
+                            if (e.workerLost)
+                            {
+                                broken.add(worker);
+                            }
+                            throw e;
+                        }
+                        catch (IOException e)
+                        {
+                            broken.add(worker);
+                            throw e;
+                        }
+
+                        if (failure != null)
+                        {
+                            failures[partition] = failure;
+                            firstFailure.accumulateAndGet(partition, Math::min);
+                        }
+                    }
+                    return null;
+                }
+                catch (Exception e)
+                {
+                    aborted.set(true);
+                    throw e;
+                }
+            }));
+        }
+
+        IOException failure = null;
+        boolean interrupted = false;
+        for (Future<Void> future : running)
+        {
+            while (true)
+            {
+                try
+                {
+                    future.get();
+                    break;
+                }
+                catch (InterruptedException e)
+                {
+                    interrupted = true;
+                    aborted.set(true);
+                }
+                catch (ExecutionException e)
+                {
+                    if (failure == null)
+                    {
+                        failure = e.getCause() instanceof IOException ?
+                            (IOException) e.getCause() : new IOException(e.getCause());
+                    }
+                    break;
+                }
+            }
+        }
+
+        for (Worker worker : broken)
+        {
+            workers.remove(worker);
+            discard(worker);
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for workers");
+        }
+        if (failure != null)
+        {
+            throw failure;
+        }
+
+        final int failed = firstFailure.get();
+        return failed == Integer.MAX_VALUE ?
+            PartitionedMatchResult.success(partitions.size()) :
+            PartitionedMatchResult.failure(failures[failed], partitions.size(), failed);
+    }
+
+    private static byte[] serialise(Partition request) throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream objects = new FieldCheckingOutputStream(bytes))
+        {
+            objects.writeObject(request);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String exchange(Worker worker, int partition, byte[] request) throws IOException
+    {
+        worker.output.writeInt(partition);
+        worker.output.writeInt(request.length);
+        worker.output.write(request);
+        worker.output.flush();
+
+        try
+        {
+            final int answered = worker.input.readInt();
+            final byte status = worker.input.readByte();
+            if (answered != partition)
+            {
+                throw new IOException("Worker answered partition " + answered + " when asked about " + partition);
+            }
+            if (status == DeepCopyWorker.ERROR)
+            {
+                throw new WorkerFailedException(
+                    "Worker failed on partition " + partition + ": " + DeepCopyWorker.readString(worker.input),
+                    false);
+            }
+
+            final boolean isDeepCopy = worker.input.readBoolean();
+            final String failureDescription = DeepCopyWorker.readString(worker.input);
+            return isDeepCopy ? null : failureDescription;
+        }
+        catch (SocketTimeoutException e)
+        {
+            throw new WorkerFailedException(
+                "Worker did not answer partition " + partition + " within " + worker.socket.getSoTimeout() + "ms",
+                true);
+        }
+    }
+
+    private PartitionedMatchResult local(Object one, Object two)
+    {
+        final DeepCopyMatchResult result = new DeepCopyAssertion(additionalImmutableTypes).matches(one, two);
+        return result.isDeepCopy ?
+            PartitionedMatchResult.success(1) : PartitionedMatchResult.failure(result.failureDescription, 1, 0);
+    }
+
+    private int partitionCount(int size)
+    {
+        return Math.max(1, Math.min(size, workers.size() * PARTITIONS_PER_WORKER));
+    }
+
+    private static int end(int partition, int partitionCount, int size)
+    {
+        return (int) ((long) (partition + 1) * size / partitionCount);
+    }
+
+    private Process launch(int port) throws IOException
+    {
+        final List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(DeepCopyWorker.class.getName());
+        command.add(Integer.toString(port));
+        for (Class<?> type : additionalImmutableTypes)
+        {
+            command.add(type.getName());
+        }
+        return new ProcessBuilder(command).inheritIO().start();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        dispatchers.shutdownNow();
+        for (Worker worker : workers)
+        {
+            discard(worker);
+        }
+        workers.clear();
+    }
+
+    private static void discard(Worker worker)
+    {
+        try
+        {
+            worker.socket.close();
+        }
+        catch (IOException ignored)
+        {
+            // the worker is being abandoned either way
+        }
+
+        try
+        {
+            if (!worker.process.waitFor(5, TimeUnit.SECONDS))
+            {
+                worker.process.destroyForcibly();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            worker.process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package net.digihippo.reflect;
+
+public final class FastutilIntMapAdapter extends ReflectivePrimitiveMapAdapter
+{
+    public FastutilIntMapAdapter()
+    {
+        super(
+            int.class,
+            "nextInt",
+            "it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap",
+            "it.unimi.dsi.fastutil.ints.Int2ObjectLinkedOpenHashMap",
+            "it.unimi.dsi.fastutil.ints.Int2ObjectAVLTreeMap",
+            "it.unimi.dsi.fastutil.ints.Int2ObjectRBTreeMap",
+            "it.unimi.dsi.fastutil.ints.Int2ObjectArrayMap");
+    }
+}
@@ -0,0 +1,16 @@
+package net.digihippo.reflect;
+
+public final class FastutilMapAdapter extends ReflectivePrimitiveMapAdapter
+{
+    public FastutilMapAdapter()
+    {
+        super(
+            long.class,
+            "nextLong",
+            "it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap",
+            "it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap",
+            "it.unimi.dsi.fastutil.longs.Long2ObjectAVLTreeMap",
+            "it.unimi.dsi.fastutil.longs.Long2ObjectRBTreeMap",
+            "it.unimi.dsi.fastutil.longs.Long2ObjectArrayMap");
+    }
+}
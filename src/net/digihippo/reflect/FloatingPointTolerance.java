@@ -0,0 +1,146 @@
+package net.digihippo.reflect;
+
+/**
+ * How close two {@code float}s or {@code double}s must be for {@link DeepCopyAssertion} to
+ * consider them equal. Values within either the absolute epsilon or the ULP distance match.
+ */
+public final class FloatingPointTolerance
+{
+    public enum NanPolicy
+    {
+        NAN_EQUALS_NAN,
+        NAN_NEVER_EQUAL
+    }
+
+    public enum SignedZeroPolicy
+    {
+        DISTINCT,
+        EQUAL
+    }
+
+    private static final FloatingPointTolerance EXACT =
+        new FloatingPointTolerance(0, 0, NanPolicy.NAN_EQUALS_NAN, SignedZeroPolicy.DISTINCT);
+
+    private final double epsilon;
+    private final long maxUlps;
+    private final NanPolicy nanPolicy;
+    private final SignedZeroPolicy signedZeroPolicy;
+
+    private FloatingPointTolerance(double epsilon, long maxUlps, NanPolicy nanPolicy, SignedZeroPolicy signedZeroPolicy)
+    {
+        if (epsilon < 0 || maxUlps < 0)
+        {
+            throw new IllegalArgumentException("Tolerances cannot be negative");
+        }
+        this.epsilon = epsilon;
+        this.maxUlps = maxUlps;
+        this.nanPolicy = nanPolicy;
+        this.signedZeroPolicy = signedZeroPolicy;
+    }
+
+    /**
+     * The same rules as {@link Double#equals(Object)}: NaN equals NaN, and 0.0 does not equal -0.0.
+     */
+    public static FloatingPointTolerance exact()
+    {
+        return EXACT;
+    }
+
+    public static FloatingPointTolerance absolute(double epsilon)
+    {
+        return new FloatingPointTolerance(epsilon, 0, NanPolicy.NAN_EQUALS_NAN, SignedZeroPolicy.DISTINCT);
+    }
+
+    public static FloatingPointTolerance ulps(long maxUlps)
+    {
+        return new FloatingPointTolerance(0, maxUlps, NanPolicy.NAN_EQUALS_NAN, SignedZeroPolicy.DISTINCT);
+    }
+
+    public FloatingPointTolerance with(NanPolicy nanPolicy)
+    {
+        return new FloatingPointTolerance(epsilon, maxUlps, nanPolicy, signedZeroPolicy);
+    }
+
+    public FloatingPointTolerance with(SignedZeroPolicy signedZeroPolicy)
+    {
+        return new FloatingPointTolerance(epsilon, maxUlps, nanPolicy, signedZeroPolicy);
+    }
+
+    boolean isExact()
+    {
+        return this == EXACT;
+    }
+
+    /**
+     * Whether elements that are identical under {@link Double#equals(Object)} always match, which
+     * lets bulk comparisons skip runs of identical elements.
+     */
+    boolean acceptsIdentical()
+    {
+        return nanPolicy == NanPolicy.NAN_EQUALS_NAN;
+    }
+
+    boolean matches(double one, double two)
+    {
+        if (Double.isNaN(one) || Double.isNaN(two))
+        {
+            return nanPolicy == NanPolicy.NAN_EQUALS_NAN && Double.isNaN(one) && Double.isNaN(two);
+        }
+        if (one == two)
+        {
+            return signedZeroPolicy == SignedZeroPolicy.EQUAL ||
+                Double.doubleToRawLongBits(one) == Double.doubleToRawLongBits(two);
+        }
+        if (Double.isInfinite(one) || Double.isInfinite(two))
+        {
+            return false;
+        }
+        return Math.abs(one - two) <= epsilon || ulpDistance(one, two) <= maxUlps;
+    }
+
+    boolean matches(float one, float two)
+    {
+        if (Float.isNaN(one) || Float.isNaN(two))
+        {
+            return nanPolicy == NanPolicy.NAN_EQUALS_NAN && Float.isNaN(one) && Float.isNaN(two);
+        }
+        if (one == two)
+        {
+            return signedZeroPolicy == SignedZeroPolicy.EQUAL ||
+                Float.floatToRawIntBits(one) == Float.floatToRawIntBits(two);
+        }
+        if (Float.isInfinite(one) || Float.isInfinite(two))
+        {
+            return false;
+        }
+        return Math.abs((double) one - two) <= epsilon || ulpDistance(one, two) <= maxUlps;
+    }
+
+    private static long ulpDistance(double one, double two)
+    {
+        final long orderedOne = ordered(Double.doubleToRawLongBits(one));
+        final long orderedTwo = ordered(Double.doubleToRawLongBits(two));
+        final long distance = orderedOne - orderedTwo;
+        if (((orderedOne ^ orderedTwo) & (orderedOne ^ distance)) < 0 || distance == Long.MIN_VALUE)
+        {
+            return Long.MAX_VALUE;
+        }
+        return Math.abs(distance);
+    }
+
+    private static long ulpDistance(float one, float two)
+    {
+        return Math.abs(
+            (long) ordered(Float.floatToRawIntBits(one)) - (long) ordered(Float.floatToRawIntBits(two)));
+    }
+
+    private static long ordered(long bits)
+    {
+        return bits < 0 ? Long.MIN_VALUE - bits : bits;
+    }
+
+    private static int ordered(int bits)
+    {
+        return bits < 0 ? Integer.MIN_VALUE - bits : bits;
+    }
+}
@@ -0,0 +1,24 @@
+package net.digihippo.reflect;
+
+/**
+ * A field by field comparison of one class, written out ahead of time by
+ * {@code DeepCopyComparatorProcessor} and discovered through {@link java.util.ServiceLoader}.
+ * {@link DeepCopyAssertion} prefers these to reflection whenever one is registered for the exact
+ * class being compared.
+ */
+public interface GeneratedComparator<T>
+{
+    interface Fields
+    {
+        DeepCopyMatchResult match(String name, Object one, Object two);
+
+        default DeepCopyMatchResult matchPrimitive(String name, Object one, Object two)
+        {
+            return match(name, one, two);
+        }
+    }
+
+    Class<T> type();
+
+    DeepCopyMatchResult compare(T one, T two, Fields fields);
+}
@@ -0,0 +1,30 @@
+package net.digihippo.reflect;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+final class GeneratedComparators
+{
+    private static final Map<Class<?>, GeneratedComparator<?>> DISCOVERED;
+    static
+    {
+        final Map<Class<?>, GeneratedComparator<?>> discovered = new HashMap<>();
+        for (GeneratedComparator<?> comparator : ServiceLoader.load(GeneratedComparator.class))
+        {
+            discovered.put(comparator.type(), comparator);
+        }
+        DISCOVERED = Collections.unmodifiableMap(discovered);
+    }
+
+    private GeneratedComparators()
+    {
+    }
+
+    @SuppressWarnings("unchecked")
+    static GeneratedComparator<Object> forClass(Class<?> type)
+    {
+        return (GeneratedComparator<Object>) DISCOVERED.get(type);
+    }
+}
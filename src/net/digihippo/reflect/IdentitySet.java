@@ -0,0 +1,62 @@
+package net.digihippo.reflect;
+
+final class IdentitySet
+{
+    private Object[] table;
+    private int size;
+
+    IdentitySet()
+    {
+        table = new Object[64];
+    }
+
+    boolean add(Object element)
+    {
+        final int index = indexOf(table, element);
+        if (table[index] != null)
+        {
+            return false;
+        }
+
+        table[index] = element;
+        if (++size * 2 > table.length)
+        {
+            resize();
+        }
+        return true;
+    }
+
+    boolean contains(Object element)
+    {
+        return table[indexOf(table, element)] != null;
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    private void resize()
+    {
+        final Object[] resized = new Object[table.length * 2];
+        for (Object element : table)
+        {
+            if (element != null)
+            {
+                resized[indexOf(resized, element)] = element;
+            }
+        }
+        table = resized;
+    }
+
+    private static int indexOf(Object[] table, Object element)
+    {
+        final int mask = table.length - 1;
+        int index = (System.identityHashCode(element) * 0x9E3779B9) & mask;
+        while (table[index] != null && table[index] != element)
+        {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,316 @@
+package net.digihippo.reflect;
+
+import java.lang.reflect.Array;
+import java.util.*;
+
+/**
+ * Repeatedly verifies the same pair of graphs, re-walking only what has changed since the last
+ * successful verification.
+ * <p>
+ * Callers report mutations with {@link #markDirty(Object)}; any object whose own fields, elements
+ * or entries were modified must be marked. A marked node whose shallow fingerprint is unchanged is
+ * skipped, otherwise its subtree is walked again. A node reached along several paths is re-checked
+ * along each of them. Passing different roots, or a previous failure, triggers a full verification.
+ */
+public final class IncrementalDeepCopyAssertion
+{
+    private static final class Pair
+    {
+        private final Object one;
+        private final Object two;
+        private final Pair parent;
+        private final Object segment;
+        private final int depth;
+        private final long oneFingerprint;
+        private final long twoFingerprint;
+        private final long run;
+        private final List<Pair> children = new ArrayList<>();
+
+        private Pair(
+            Object one,
+            Object two,
+            Pair parent,
+            Object segment,
+            long oneFingerprint,
+            long twoFingerprint,
+            long run)
+        {
+            this.one = one;
+            this.two = two;
+            this.parent = parent;
+            this.segment = segment;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+            this.oneFingerprint = oneFingerprint;
+            this.twoFingerprint = twoFingerprint;
+            this.run = run;
+            if (parent != null)
+            {
+                parent.children.add(this);
+            }
+        }
+    }
+
+    private final Class<?>[] additionalImmutableTypes;
+    private final ValueTypes valueTypes;
+    private final Map<Object, List<Pair>> pairsByNode = new IdentityHashMap<>();
+    private final Set<Object> dirty = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private Object lastOne;
+    private Object lastTwo;
+    private long run;
+    private int pairsVisited;
+
+    public IncrementalDeepCopyAssertion(Class<?>... additionalImmutableTypes)
+    {
+        this.additionalImmutableTypes = additionalImmutableTypes;
+        this.valueTypes = new ValueTypes(additionalImmutableTypes);
+    }
+
+    public void markDirty(Object node)
+    {
+        dirty.add(node);
+    }
+
+    public void reset()
+    {
+        pairsByNode.clear();
+        dirty.clear();
+        lastOne = null;
+        lastTwo = null;
+    }
+
+    public DeepCopyMatchResult matches(Object one, Object two)
+    {
+        ++run;
+        pairsVisited = 0;
+
+        final DeepCopyMatchResult result;
+        if (pairsByNode.isEmpty() || one != lastOne || two != lastTwo)
+        {
+            pairsByNode.clear();
+            result = walk(null, Collections.singletonList("root"), one, two);
+        }
+        else
+        {
+            result = rewalkDirty();
+        }
+
+        dirty.clear();
+        if (result.isDeepCopy)
+        {
+            lastOne = one;
+            lastTwo = two;
+        }
+        else
+        {
+            reset();
+        }
+        return result;
+    }
+
+    int pairsVisited()
+    {
+        return pairsVisited;
+    }
+
+    int trackedNodes()
+    {
+        return pairsByNode.size();
+    }
+
+    private DeepCopyMatchResult rewalkDirty()
+    {
+        final List<Pair> changed = new ArrayList<>();
+        for (Object node : dirty)
+        {
+            for (Pair pair : pairsByNode.getOrDefault(node, Collections.emptyList()))
+            {
+                if (isAttached(pair))
+                {
+                    changed.add(pair);
+                }
+            }
+        }
+        changed.sort(Comparator.comparingInt(pair -> pair.depth));
+
+        for (Pair pair : changed)
+        {
+            if (pair.run == run || !isAttached(pair) ||
+                (fingerprint(pair.one) == pair.oneFingerprint && fingerprint(pair.two) == pair.twoFingerprint))
+            {
+                continue;
+            }
+
+            unregister(pair);
+            final DeepCopyMatchResult result = walk(pair.parent, pathTo(pair), pair.one, pair.two);
+            if (!result.isDeepCopy)
+            {
+                return result;
+            }
+        }
+        return DeepCopyMatchResult.success();
+    }
+
+    private DeepCopyMatchResult walk(Pair parent, List<?> path, Object one, Object two)
+    {
+        final Deque<Pair> stack = new ArrayDeque<>();
+        if (parent != null)
+        {
+            stack.push(parent);
+        }
+
+        return new DeepCopyAssertion(additionalImmutableTypes)
+            .listener(new DeepCopyAssertion.PairListener()
+            {
+                @Override
+                public void enter(Object one, Object two, Object segment)
+                {
+                    final Pair pair =
+                        new Pair(one, two, stack.peek(), segment, fingerprint(one), fingerprint(two), run);
+                    register(one, pair);
+                    register(two, pair);
+                    stack.push(pair);
+                    ++pairsVisited;
+                }
+
+                @Override
+                public void exit()
+                {
+                    stack.pop();
+                }
+            })
+            .matches(path, one, two);
+    }
+
+    private void register(Object node, Pair pair)
+    {
+        pairsByNode.computeIfAbsent(node, ignored -> new ArrayList<>()).add(pair);
+    }
+
+    private void unregister(Pair root)
+    {
+        if (root.parent != null)
+        {
+            root.parent.children.remove(root);
+        }
+
+        final Deque<Pair> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty())
+        {
+            final Pair pair = pending.pop();
+            unregister(pair.one, pair);
+            unregister(pair.two, pair);
+            pair.children.forEach(pending::push);
+        }
+    }
+
+    private void unregister(Object node, Pair pair)
+    {
+        final List<Pair> pairs = pairsByNode.get(node);
+        if (pairs != null && pairs.remove(pair) && pairs.isEmpty())
+        {
+            pairsByNode.remove(node);
+        }
+    }
+
+    private boolean isAttached(Pair pair)
+    {
+        for (Pair current = pair; current != null; current = current.parent)
+        {
+            if (!isRegistered(current.one, current) || !isRegistered(current.two, current))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isRegistered(Object node, Pair pair)
+    {
+        final List<Pair> pairs = pairsByNode.get(node);
+        return pairs != null && pairs.contains(pair);
+    }
+
+    private static List<Object> pathTo(Pair pair)
+    {
+        final LinkedList<Object> path = new LinkedList<>();
+        for (Pair current = pair; current != null; current = current.parent)
+        {
+            path.addFirst(current.segment);
+        }
+        return path;
+    }
+
+    private long fingerprint(Object node)
+    {
+        final Class<?> type = node.getClass();
+        if (type.isArray())
+        {
+            long hash = Array.getLength(node);
+            if (type.getComponentType().isPrimitive())
+            {
+                for (int i = 0; i < Array.getLength(node); i++)
+                {
+                    hash = 31 * hash + Array.get(node, i).hashCode();
+                }
+            }
+            else
+            {
+                for (Object element : (Object[]) node)
+                {
+                    hash = 31 * hash + shallowHash(element);
+                }
+            }
+            return hash;
+        }
+
+        if (node instanceof Map)
+        {
+            long hash = ((Map<?, ?>) node).size();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) node).entrySet())
+            {
+                hash = 31 * hash + shallowHash(entry.getKey());
+                hash = 31 * hash + shallowHash(entry.getValue());
+            }
+            return hash;
+        }
+
+        if (node instanceof Collection)
+        {
+            long hash = ((Collection<?>) node).size();
+            for (Object element : (Collection<?>) node)
+            {
+                hash = 31 * hash + shallowHash(element);
+            }
+            return hash;
+        }
+
+        final ClassPlan plan = ClassPlan.of(type);
+        if (!plan.accessible)
+        {
+            return node.hashCode();
+        }
+
+        long hash = 17;
+        for (int i = 0; i < plan.fields.length; i++)
+        {
+            final Object value = plan.get(i, node);
+            hash = 31 * hash + (plan.fields[i].getType().isPrimitive() ? value.hashCode() : shallowHash(value));
+        }
+        return hash;
+    }
+
+    private int shallowHash(Object value)
+    {
+        if (value == null)
+        {
+            return 0;
+        }
+        if (valueTypes.contains(value.getClass()) || value instanceof Enum)
+        {
+            return value.hashCode();
+        }
+        return System.identityHashCode(value);
+    }
+}
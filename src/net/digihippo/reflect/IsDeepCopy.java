@@ -0,0 +1,87 @@
+package net.digihippo.reflect;
+
+import org.hamcrest.BaseMatcher;
+import org.hamcrest.Description;
+import org.hamcrest.Factory;
+import org.hamcrest.Matcher;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A Hamcrest matcher for deep copies. Matchers created without an explicit
+ * {@link DeepCopyAssertion} share one comparator per thread and per set of immutable types, and
+ * nothing is described unless the match fails.
+ */
+public final class IsDeepCopy extends BaseMatcher<Object>
+{
+    private static final ThreadLocal<Map<List<Class<?>>, DeepCopyAssertion>> SHARED =
+        ThreadLocal.withInitial(HashMap::new);
+
+    private final Object original;
+    private final List<Class<?>> additionalImmutableTypes;
+    private final DeepCopyAssertion assertion;
+
+    private Object lastItem;
+    private DeepCopyMatchResult lastResult;
+
+    private IsDeepCopy(Object original, List<Class<?>> additionalImmutableTypes, DeepCopyAssertion assertion)
+    {
+        this.original = original;
+        this.additionalImmutableTypes = additionalImmutableTypes;
+        this.assertion = assertion;
+    }
+
+    @Factory
+    public static Matcher<Object> deepCopyOf(Object original, Class<?>... additionalImmutableTypes)
+    {
+        return new IsDeepCopy(original, Arrays.asList(additionalImmutableTypes), null);
+    }
+
+    @Factory
+    public static Matcher<Object> deepCopyOf(Object original, DeepCopyAssertion assertion)
+    {
+        return new IsDeepCopy(original, null, assertion);
+    }
+
+    @Override
+    public boolean matches(Object item)
+    {
+        return resultFor(item).isDeepCopy;
+    }
+
+    @Override
+    public void describeTo(Description description)
+    {
+        description.appendText(
+            original == null ? "a deep copy of null" : "a deep copy of a " + original.getClass().getName());
+    }
+
+    @Override
+    public void describeMismatch(Object item, Description description)
+    {
+        description.appendText(resultFor(item).failureDescription);
+    }
+
+    private DeepCopyMatchResult resultFor(Object item)
+    {
+        if (lastResult == null || lastItem != item)
+        {
+            lastResult = comparator().matches(original, item);
+            lastItem = item;
+        }
+        return lastResult;
+    }
+
+    private DeepCopyAssertion comparator()
+    {
+        if (assertion != null)
+        {
+            return assertion;
+        }
+        return SHARED.get().computeIfAbsent(
+            additionalImmutableTypes, types -> new DeepCopyAssertion(types.toArray(new Class<?>[0])));
+    }
+}
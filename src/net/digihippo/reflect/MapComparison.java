@@ -0,0 +1,13 @@
+package net.digihippo.reflect;
+
+public enum MapComparison
+{
+    /**
+     * Values are looked up in both maps by key; the keys themselves are only compared by {@code equals}.
+     */
+    VALUES_BY_KEY,
+    /**
+     * Entries are paired by key and both keys and values must be deep copies.
+     */
+    KEYS_AND_VALUES
+}
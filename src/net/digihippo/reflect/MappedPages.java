@@ -0,0 +1,144 @@
+package net.digihippo.reflect;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+final class MappedPages implements Closeable
+{
+    static final int DEFAULT_PAGE_SIZE = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int pageSize;
+
+    private MappedByteBuffer page;
+    private long pageStart;
+    private long position;
+
+    MappedPages(Path file, int pageSize) throws IOException
+    {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.pageSize = pageSize;
+    }
+
+    long position()
+    {
+        return position;
+    }
+
+    void position(long position)
+    {
+        this.position = position;
+    }
+
+    boolean exhausted()
+    {
+        return position >= size;
+    }
+
+    byte readByte()
+    {
+        return ensure(1).get(offset(1));
+    }
+
+    short readShort()
+    {
+        return ensure(2).getShort(offset(2));
+    }
+
+    char readChar()
+    {
+        return ensure(2).getChar(offset(2));
+    }
+
+    int readInt()
+    {
+        return ensure(4).getInt(offset(4));
+    }
+
+    long readLong()
+    {
+        return ensure(8).getLong(offset(8));
+    }
+
+    float readFloat()
+    {
+        return ensure(4).getFloat(offset(4));
+    }
+
+    double readDouble()
+    {
+        return ensure(8).getDouble(offset(8));
+    }
+
+    boolean readBoolean()
+    {
+        return readByte() != 0;
+    }
+
+    String readString()
+    {
+        final byte[] bytes = new byte[readInt()];
+        int read = 0;
+        while (read < bytes.length)
+        {
+            final MappedByteBuffer current = ensure(1);
+            final int offset = (int) (position - pageStart);
+            final int chunk = Math.min(bytes.length - read, current.limit() - offset);
+            current.get(offset, bytes, read, chunk);
+            position += chunk;
+            read += chunk;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    void skip(long bytes)
+    {
+        position += bytes;
+    }
+
+    private int offset(int width)
+    {
+        final int offset = (int) (position - pageStart);
+        position += width;
+        return offset;
+    }
+
+    private MappedByteBuffer ensure(int width)
+    {
+        if (position + width > size)
+        {
+            throw new IllegalStateException(
+                "Snapshot truncated: wanted " + width + " bytes at " + position + " of " + size);
+        }
+
+        if (page == null || position < pageStart || position + width > pageStart + page.limit())
+        {
+            try
+            {
+                pageStart = position;
+                page = channel.map(
+                    FileChannel.MapMode.READ_ONLY, pageStart, Math.min(Math.max(pageSize, width), size - pageStart));
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        page = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,527 @@
+package net.digihippo.reflect;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.*;
+
+import static net.digihippo.reflect.MappedSnapshotStore.*;
+
+/**
+ * A graph written by {@link MappedSnapshotStore}, read lazily from memory mapped pages.
+ * <p>
+ * Only the values and shape of the original survive the trip to disk, so unlike
+ * {@link DeepCopyAssertion} this cannot spot instances shared between the two graphs.
+ */
+public final class MappedSnapshot implements Closeable
+{
+    private static final String ABSENT = "<absent>";
+
+    private final MappedPages pages;
+    private final Map<Class<?>, Map<String, Integer>> fieldsByClass = new HashMap<>();
+    private final Stack<String> fieldPath = new Stack<>();
+
+    MappedSnapshot(MappedPages pages)
+    {
+        this.pages = pages;
+    }
+
+    public DeepCopyMatchResult matches(Object copy)
+    {
+        pages.position(0);
+        fieldPath.clear();
+        fieldPath.push("root");
+        return match(copy);
+    }
+
+    private DeepCopyMatchResult match(Object two)
+    {
+        final byte tag = pages.readByte();
+        if (tag == NULL)
+        {
+            return two == null ? DeepCopyMatchResult.success() : valueNotEqual("null", two);
+        }
+
+        final String className = tag < OTHER_VALUE ? null : pages.readString();
+        final Object one = tag < OTHER_VALUE ? readValue(tag) : null;
+        if (two == null)
+        {
+            return valueNotEqual(render(tag, className, one), null);
+        }
+
+        final String expectedType = className == null ? one.getClass().getName() : className;
+        if (!expectedType.equals(two.getClass().getName()))
+        {
+            return fail(
+                "objects are not the same type (" + expectedType +
+                " versus " + two.getClass().getName() + ")");
+        }
+
+        switch (tag)
+        {
+            case OTHER_VALUE:
+                return textMatch(pages.readString(), two.toString());
+            case ENUM:
+                return textMatch(pages.readString(), ((Enum<?>) two).name());
+            case PRIMITIVE_ARRAY:
+                return primitiveArrayMatch(className.charAt(1), two);
+            case OBJECT_ARRAY:
+                return elementsMatch(Arrays.asList((Object[]) two).iterator(), "[", "]");
+            case COLLECTION:
+                return elementsMatch(((Collection<?>) two).iterator(), "at(", ")");
+            case KEYED_MAP:
+                return keyedMapMatch((Map<?, ?>) two);
+            case ORDERED_MAP:
+                return orderedMapMatch((Map<?, ?>) two);
+            case HASHED_MAP:
+                return hashedMapMatch((Map<?, ?>) two);
+            case OBJECT:
+                return fieldByFieldMatch(two);
+            default:
+                return one.equals(two) ? DeepCopyMatchResult.success() : valueNotEqual(String.valueOf(one), two);
+        }
+    }
+
+    private DeepCopyMatchResult textMatch(String one, String two)
+    {
+        return one.equals(two) ? DeepCopyMatchResult.success() : valueNotEqual(one, two);
+    }
+
+    private DeepCopyMatchResult primitiveArrayMatch(char code, Object two)
+    {
+        final int length = pages.readInt();
+        final int otherLength = Array.getLength(two);
+        for (int i = 0; i < Math.max(length, otherLength); i++)
+        {
+            final Object one = i < length ? readPrimitive(code) : ABSENT;
+            final Object other = i < otherLength ? Array.get(two, i) : ABSENT;
+            if (!one.equals(other))
+            {
+                fieldPath.push("[" + i + "]");
+                return valueNotEqual(String.valueOf(one), other);
+            }
+        }
+        return DeepCopyMatchResult.success();
+    }
+
+    private DeepCopyMatchResult elementsMatch(Iterator<?> two, String open, String close)
+    {
+        final int size = pages.readInt();
+        for (int i = 0; i < size; i++)
+        {
+            fieldPath.push(open + i + close);
+
+            if (!two.hasNext())
+            {
+                return valueNotEqual(renderNext(), ABSENT);
+            }
+
+            final DeepCopyMatchResult result = match(two.next());
+            if (!result.isDeepCopy)
+            {
+                return result;
+            }
+
+            fieldPath.pop();
+        }
+
+        if (two.hasNext())
+        {
+            fieldPath.push(open + size + close);
+            return valueNotEqual(ABSENT, two.next());
+        }
+        return DeepCopyMatchResult.success();
+    }
+
+    private DeepCopyMatchResult keyedMapMatch(Map<?, ?> two)
+    {
+        final int size = pages.readInt();
+        final long entriesStart = pages.position();
+        int present = 0;
+        for (int i = 0; i < size; i++)
+        {
+            final Object key = readKey();
+            if (two.containsKey(key))
+            {
+                ++present;
+            }
+            fieldPath.push("get(" + key + ")");
+
+            final DeepCopyMatchResult result = match(two.get(key));
+            if (!result.isDeepCopy)
+            {
+                return result;
+            }
+
+            fieldPath.pop();
+        }
+
+        if (two.size() != present)
+        {
+            pages.position(entriesStart);
+            final Set<Object> keys = new HashSet<>();
+            for (int i = 0; i < size; i++)
+            {
+                keys.add(readKey());
+                skipNode();
+            }
+            for (Map.Entry<?, ?> entry : two.entrySet())
+            {
+                if (!keys.contains(entry.getKey()))
+                {
+                    fieldPath.push("get(" + entry.getKey() + ")");
+                    return valueNotEqual("null", entry.getValue());
+                }
+            }
+        }
+        return DeepCopyMatchResult.success();
+    }
+
+    private DeepCopyMatchResult orderedMapMatch(Map<?, ?> two)
+    {
+        final int size = pages.readInt();
+        if (size != two.size())
+        {
+            return fail("maps are not the same size (" + size + " versus " + two.size() + ")");
+        }
+
+        for (Map.Entry<?, ?> entry : two.entrySet())
+        {
+            fieldPath.push("get(" + entry.getKey() + ")");
+
+            DeepCopyMatchResult result = match(entry.getKey());
+            if (result.isDeepCopy)
+            {
+                result = match(entry.getValue());
+            }
+            if (!result.isDeepCopy)
+            {
+                return result;
+            }
+
+            fieldPath.pop();
+        }
+        return DeepCopyMatchResult.success();
+    }
+
+    private DeepCopyMatchResult hashedMapMatch(Map<?, ?> two)
+    {
+        final Map<Integer, List<Map.Entry<?, ?>>> buckets = new HashMap<>();
+        for (Map.Entry<?, ?> entry : two.entrySet())
+        {
+            buckets.computeIfAbsent(Objects.hashCode(entry.getKey()), hash -> new ArrayList<>()).add(entry);
+        }
+
+        final int size = pages.readInt();
+        for (int i = 0; i < size; i++)
+        {
+            final List<Map.Entry<?, ?>> candidates = buckets.get(pages.readInt());
+            final long keyStart = pages.position();
+            final Map.Entry<?, ?> paired = candidates == null ? null : pair(candidates, keyStart);
+            if (paired == null)
+            {
+                pages.position(keyStart);
+                final String key = renderNext();
+                pages.position(keyStart);
+                skipNode();
+                fieldPath.push("get(" + key + ")");
+                return valueNotEqual(renderNext(), null);
+            }
+
+            fieldPath.push("get(" + paired.getKey() + ")");
+
+            final DeepCopyMatchResult result = match(paired.getValue());
+            if (!result.isDeepCopy)
+            {
+                return result;
+            }
+
+            fieldPath.pop();
+        }
+
+        for (List<Map.Entry<?, ?>> unpaired : buckets.values())
+        {
+            if (!unpaired.isEmpty())
+            {
+                fieldPath.push("get(" + unpaired.get(0).getKey() + ")");
+                return valueNotEqual("null", unpaired.get(0).getValue());
+            }
+        }
+        return DeepCopyMatchResult.success();
+    }
+
+    private Map.Entry<?, ?> pair(List<Map.Entry<?, ?>> candidates, long keyStart)
+    {
+        final int depth = fieldPath.size();
+        for (Iterator<Map.Entry<?, ?>> iterator = candidates.iterator(); iterator.hasNext(); )
+        {
+            final Map.Entry<?, ?> candidate = iterator.next();
+            pages.position(keyStart);
+            final boolean matched = match(candidate.getKey()).isDeepCopy;
+            fieldPath.setSize(depth);
+            if (matched)
+            {
+                iterator.remove();
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private DeepCopyMatchResult fieldByFieldMatch(Object two)
+    {
+        final ClassPlan plan = ClassPlan.of(two.getClass());
+        final Map<String, Integer> fields = fieldsOf(two.getClass(), plan);
+        final int fieldCount = pages.readInt();
+        for (int i = 0; i < fieldCount; i++)
+        {
+            final String name = pages.readString();
+            fieldPath.push(name);
+
+            final Integer index = fields.get(name);
+            if (index == null)
+            {
+                return fail("field is not present in " + two.getClass().getName());
+            }
+
+            final DeepCopyMatchResult result = match(plan.get(index, two));
+            if (!result.isDeepCopy)
+            {
+                return result;
+            }
+
+            fieldPath.pop();
+        }
+        return DeepCopyMatchResult.success();
+    }
+
+    private Map<String, Integer> fieldsOf(Class<?> type, ClassPlan plan)
+    {
+        Map<String, Integer> fields = fieldsByClass.get(type);
+        if (fields == null)
+        {
+            fields = new HashMap<>();
+            for (int i = 0; i < plan.fields.length; i++)
+            {
+                fields.put(plan.fields[i].getName(), i);
+            }
+            fieldsByClass.put(type, fields);
+        }
+        return fields;
+    }
+
+    private Object readKey()
+    {
+        final byte tag = pages.readByte();
+        if (tag == NULL)
+        {
+            return null;
+        }
+        if (tag == ENUM)
+        {
+            return readEnum();
+        }
+        return readValue(tag);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Enum<?> readEnum()
+    {
+        final String className = pages.readString();
+        final String name = pages.readString();
+        try
+        {
+            Class<?> type = Class.forName(className);
+            if (!type.isEnum())
+            {
+                type = type.getSuperclass();
+            }
+            return Enum.valueOf((Class) type, name);
+        }
+        catch (ClassNotFoundException e)
+        {
+            throw new IllegalStateException("Snapshot refers to unknown enum " + className, e);
+        }
+    }
+
+    private Object readValue(byte tag)
+    {
+        switch (tag)
+        {
+            case STRING:
+                return pages.readString();
+            case LONG:
+                return pages.readLong();
+            case INTEGER:
+                return pages.readInt();
+            case FLOAT:
+                return pages.readFloat();
+            case DOUBLE:
+                return pages.readDouble();
+            case BOOLEAN:
+                return pages.readBoolean();
+            case BYTE:
+                return pages.readByte();
+            default:
+                throw new IllegalStateException("Unknown value tag " + tag);
+        }
+    }
+
+    private Object readPrimitive(char code)
+    {
+        switch (code)
+        {
+            case 'J':
+                return pages.readLong();
+            case 'I':
+                return pages.readInt();
+            case 'D':
+                return pages.readDouble();
+            case 'F':
+                return pages.readFloat();
+            case 'Z':
+                return pages.readBoolean();
+            case 'B':
+                return pages.readByte();
+            case 'S':
+                return pages.readShort();
+            case 'C':
+                return pages.readChar();
+            default:
+                throw new IllegalStateException("Unknown primitive array code " + code);
+        }
+    }
+
+    private String renderNext()
+    {
+        final byte tag = pages.readByte();
+        if (tag == NULL)
+        {
+            return "null";
+        }
+        if (tag < OTHER_VALUE)
+        {
+            return String.valueOf(readValue(tag));
+        }
+        return render(tag, pages.readString(), null);
+    }
+
+    private String render(byte tag, String className, Object value)
+    {
+        if (tag < OTHER_VALUE)
+        {
+            return String.valueOf(value);
+        }
+        if (tag == OTHER_VALUE || tag == ENUM)
+        {
+            return pages.readString();
+        }
+        return "<" + className + ">";
+    }
+
+    private void skipNode()
+    {
+        final byte tag = pages.readByte();
+        switch (tag)
+        {
+            case NULL:
+                return;
+            case STRING:
+                pages.readString();
+                return;
+            case LONG:
+            case DOUBLE:
+                pages.skip(8);
+                return;
+            case INTEGER:
+            case FLOAT:
+                pages.skip(4);
+                return;
+            case BOOLEAN:
+            case BYTE:
+                pages.skip(1);
+                return;
+            case OTHER_VALUE:
+            case ENUM:
+                pages.readString();
+                pages.readString();
+                return;
+            case PRIMITIVE_ARRAY:
+                final char code = pages.readString().charAt(1);
+                pages.skip((long) pages.readInt() * primitiveWidth(code));
+                return;
+            case OBJECT_ARRAY:
+            case COLLECTION:
+                pages.readString();
+                skipNodes(pages.readInt());
+                return;
+            case KEYED_MAP:
+            case ORDERED_MAP:
+                pages.readString();
+                skipNodes(2L * pages.readInt());
+                return;
+            case HASHED_MAP:
+                pages.readString();
+                final int entries = pages.readInt();
+                for (int i = 0; i < entries; i++)
+                {
+                    pages.skip(4);
+                    skipNodes(2);
+                }
+                return;
+            case OBJECT:
+                pages.readString();
+                final int fieldCount = pages.readInt();
+                for (int i = 0; i < fieldCount; i++)
+                {
+                    pages.readString();
+                    skipNode();
+                }
+                return;
+            default:
+                throw new IllegalStateException("Unknown tag " + tag);
+        }
+    }
+
+    private void skipNodes(long count)
+    {
+        for (long i = 0; i < count; i++)
+        {
+            skipNode();
+        }
+    }
+
+    private static int primitiveWidth(char code)
+    {
+        switch (code)
+        {
+            case 'J':
+            case 'D':
+                return 8;
+            case 'I':
+            case 'F':
+                return 4;
+            case 'S':
+            case 'C':
+                return 2;
+            default:
+                return 1;
+        }
+    }
+
+    private DeepCopyMatchResult valueNotEqual(String one, Object two)
+    {
+        return fail(one + " != " + two);
+    }
+
+    private DeepCopyMatchResult fail(String message)
+    {
+        return DeepCopyAssertion.failure(fieldPath, message);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        pages.close();
+    }
+}
@@ -0,0 +1,287 @@
+package net.digihippo.reflect;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Writes one side of a deep copy comparison to disk, so that it can later be
+ * compared against a live graph without both graphs being on the heap at once.
+ * <p>
+ * Maps whose order is not part of their type are paired by key hash code and then by key, so
+ * their keys' hash codes must be the same when the snapshot is read as when it was written.
+ */
+public final class MappedSnapshotStore
+{
+    static final byte NULL = 0;
+    static final byte STRING = 1;
+    static final byte LONG = 2;
+    static final byte INTEGER = 3;
+    static final byte FLOAT = 4;
+    static final byte DOUBLE = 5;
+    static final byte BOOLEAN = 6;
+    static final byte BYTE = 7;
+    static final byte OTHER_VALUE = 8;
+    static final byte ENUM = 9;
+    static final byte PRIMITIVE_ARRAY = 10;
+    static final byte OBJECT_ARRAY = 11;
+    static final byte KEYED_MAP = 12;
+    static final byte ORDERED_MAP = 13;
+    static final byte COLLECTION = 14;
+    static final byte OBJECT = 15;
+    static final byte HASHED_MAP = 16;
+
+    private static final Set<Class<?>> DECODABLE_KEY_TYPES = new HashSet<>(Arrays.asList(
+        String.class, Long.class, Integer.class, Float.class, Double.class, Boolean.class, Byte.class));
+
+    private final ValueTypes valueTypes;
+    private final int pageSize;
+
+    public MappedSnapshotStore(Class<?>... additionalImmutableTypes)
+    {
+        this(MappedPages.DEFAULT_PAGE_SIZE, additionalImmutableTypes);
+    }
+
+    MappedSnapshotStore(int pageSize, Class<?>... additionalImmutableTypes)
+    {
+        this.pageSize = pageSize;
+        this.valueTypes = new ValueTypes(additionalImmutableTypes);
+    }
+
+    public MappedSnapshot write(Path file, Object original) throws IOException
+    {
+        try (DataOutputStream output =
+                 new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)))
+        {
+            writeNode(output, original);
+        }
+        return open(file);
+    }
+
+    public MappedSnapshot open(Path file) throws IOException
+    {
+        return new MappedSnapshot(new MappedPages(file, pageSize));
+    }
+
+    private void writeNode(DataOutputStream output, Object one) throws IOException
+    {
+        if (one == null)
+        {
+            output.writeByte(NULL);
+            return;
+        }
+
+        final Class<?> type = one.getClass();
+        if (valueTypes.contains(type))
+        {
+            writeValue(output, one);
+            return;
+        }
+
+        if (one instanceof Enum)
+        {
+            output.writeByte(ENUM);
+            writeString(output, type.getName());
+            writeString(output, ((Enum<?>) one).name());
+            return;
+        }
+
+        if (type.isArray())
+        {
+            writeArray(output, one);
+            return;
+        }
+
+        if (one instanceof Map)
+        {
+            final Map<?, ?> map = (Map<?, ?>) one;
+            final byte tag = allKeysDecodable(map) ? KEYED_MAP : isOrdered(map) ? ORDERED_MAP : HASHED_MAP;
+            output.writeByte(tag);
+            writeString(output, type.getName());
+            output.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet())
+            {
+                if (tag == HASHED_MAP)
+                {
+                    output.writeInt(Objects.hashCode(entry.getKey()));
+                }
+                writeNode(output, entry.getKey());
+                writeNode(output, entry.getValue());
+            }
+            return;
+        }
+
+        if (one instanceof Collection)
+        {
+            final Collection<?> collection = (Collection<?>) one;
+            output.writeByte(COLLECTION);
+            writeString(output, type.getName());
+            output.writeInt(collection.size());
+            for (Object element : collection)
+            {
+                writeNode(output, element);
+            }
+            return;
+        }
+
+        final ClassPlan plan = ClassPlan.of(type);
+        if (!plan.accessible)
+        {
+            writeValue(output, one);
+            return;
+        }
+
+        output.writeByte(OBJECT);
+        writeString(output, type.getName());
+        output.writeInt(plan.fields.length);
+        for (int i = 0; i < plan.fields.length; i++)
+        {
+            writeString(output, plan.fields[i].getName());
+            writeNode(output, plan.get(i, one));
+        }
+    }
+
+    private void writeValue(DataOutputStream output, Object one) throws IOException
+    {
+        if (one instanceof String)
+        {
+            output.writeByte(STRING);
+            writeString(output, (String) one);
+        }
+        else if (one instanceof Long)
+        {
+            output.writeByte(LONG);
+            output.writeLong((Long) one);
+        }
+        else if (one instanceof Integer)
+        {
+            output.writeByte(INTEGER);
+            output.writeInt((Integer) one);
+        }
+        else if (one instanceof Float)
+        {
+            output.writeByte(FLOAT);
+            output.writeFloat((Float) one);
+        }
+        else if (one instanceof Double)
+        {
+            output.writeByte(DOUBLE);
+            output.writeDouble((Double) one);
+        }
+        else if (one instanceof Boolean)
+        {
+            output.writeByte(BOOLEAN);
+            output.writeBoolean((Boolean) one);
+        }
+        else if (one instanceof Byte)
+        {
+            output.writeByte(BYTE);
+            output.writeByte((Byte) one);
+        }
+        else
+        {
+            output.writeByte(OTHER_VALUE);
+            writeString(output, one.getClass().getName());
+            writeString(output, one.toString());
+        }
+    }
+
+    private void writeArray(DataOutputStream output, Object one) throws IOException
+    {
+        final Class<?> componentType = one.getClass().getComponentType();
+        final int length = Array.getLength(one);
+        output.writeByte(componentType.isPrimitive() ? PRIMITIVE_ARRAY : OBJECT_ARRAY);
+        writeString(output, one.getClass().getName());
+        output.writeInt(length);
+
+        if (componentType == long.class)
+        {
+            for (long l : (long[]) one)
+            {
+                output.writeLong(l);
+            }
+        }
+        else if (componentType == int.class)
+        {
+            for (int i : (int[]) one)
+            {
+                output.writeInt(i);
+            }
+        }
+        else if (componentType == double.class)
+        {
+            for (double d : (double[]) one)
+            {
+                output.writeDouble(d);
+            }
+        }
+        else if (componentType == float.class)
+        {
+            for (float f : (float[]) one)
+            {
+                output.writeFloat(f);
+            }
+        }
+        else if (componentType == boolean.class)
+        {
+            for (boolean b : (boolean[]) one)
+            {
+                output.writeBoolean(b);
+            }
+        }
+        else if (componentType == byte.class)
+        {
+            output.write((byte[]) one);
+        }
+        else if (componentType == short.class)
+        {
+            for (short s : (short[]) one)
+            {
+                output.writeShort(s);
+            }
+        }
+        else if (componentType == char.class)
+        {
+            for (char c : (char[]) one)
+            {
+                output.writeChar(c);
+            }
+        }
+        else
+        {
+            for (Object element : (Object[]) one)
+            {
+                writeNode(output, element);
+            }
+        }
+    }
+
+    private static boolean allKeysDecodable(Map<?, ?> map)
+    {
+        for (Object key : map.keySet())
+        {
+            if (key != null && !(key instanceof Enum) && !DECODABLE_KEY_TYPES.contains(key.getClass()))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isOrdered(Map<?, ?> map)
+    {
+        return map instanceof SortedMap || map instanceof LinkedHashMap;
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException
+    {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+}
@@ -0,0 +1,18 @@
+package net.digihippo.reflect;
+
+public final class ObjectPair
+{
+    public final Object one;
+    public final Object two;
+
+    public ObjectPair(Object one, Object two)
+    {
+        this.one = one;
+        this.two = two;
+    }
+
+    public static ObjectPair of(Object one, Object two)
+    {
+        return new ObjectPair(one, two);
+    }
+}
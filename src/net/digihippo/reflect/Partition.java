@@ -0,0 +1,46 @@
+package net.digihippo.reflect;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+final class Partition implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private final Object[] keys;
+    private final int firstIndex;
+    private final Object[] ones;
+    private final Object[] twos;
+
+    private Partition(Object[] keys, int firstIndex, Object[] ones, Object[] twos)
+    {
+        this.keys = keys;
+        this.firstIndex = firstIndex;
+        this.ones = ones;
+        this.twos = twos;
+    }
+
+    static Partition keyed(Object[] keys, Object[] ones, Object[] twos)
+    {
+        return new Partition(keys, 0, ones, twos);
+    }
+
+    static Partition indexed(int firstIndex, Object[] ones, Object[] twos)
+    {
+        return new Partition(null, firstIndex, ones, twos);
+    }
+
+    DeepCopyMatchResult verify(DeepCopyAssertion assertion)
+    {
+        for (int i = 0; i < ones.length; i++)
+        {
+            final Object segment = keys == null ? "[" + (firstIndex + i) + "]" : new DeepCopyAssertion.MapKey(keys[i]);
+            final DeepCopyMatchResult result = assertion.matches(Arrays.asList("root", segment), ones[i], twos[i]);
+            if (!result.isDeepCopy)
+            {
+                return result;
+            }
+        }
+        return DeepCopyMatchResult.success();
+    }
+}
@@ -0,0 +1,46 @@
+package net.digihippo.reflect;
+
+/**
+ * The outcome of a {@link DistributedDeepCopyVerifier} run. When verification fails,
+ * {@code failedPartition} names the partition holding the first failing path, or is
+ * {@link #COORDINATOR} when the coordinator found the difference itself, for example an entry
+ * present only in the copy.
+ */
+public final class PartitionedMatchResult
+{
+    public static final int COORDINATOR = -1;
+
+    public final boolean isDeepCopy;
+    public final String failureDescription;
+    public final int partitions;
+    public final int failedPartition;
+
+    PartitionedMatchResult(boolean isDeepCopy, String failureDescription, int partitions, int failedPartition)
+    {
+        this.isDeepCopy = isDeepCopy;
+        this.failureDescription = failureDescription;
+        this.partitions = partitions;
+        this.failedPartition = failedPartition;
+    }
+
+    static PartitionedMatchResult success(int partitions)
+    {
+        return new PartitionedMatchResult(true, null, partitions, COORDINATOR);
+    }
+
+    static PartitionedMatchResult failure(String failureDescription, int partitions, int failedPartition)
+    {
+        return new PartitionedMatchResult(false, failureDescription, partitions, failedPartition);
+    }
+
+    @Override
+    public String toString()
+    {
+        if (isDeepCopy)
+        {
+            return "deep copy across " + partitions + " partitions";
+        }
+        return failedPartition == COORDINATOR ?
+            failureDescription : failureDescription + " (partition " + failedPartition + " of " + partitions + ")";
+    }
+}
@@ -0,0 +1,57 @@
+package net.digihippo.reflect;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+final class PrimitiveCollectionAdapters
+{
+    static final Object NONE = new Object();
+
+    private static final List<Object> DISCOVERED = new ArrayList<>();
+    static
+    {
+        for (PrimitiveKeyedMapAdapter adapter : ServiceLoader.load(PrimitiveKeyedMapAdapter.class))
+        {
+            DISCOVERED.add(adapter);
+        }
+        for (PrimitiveListAdapter adapter : ServiceLoader.load(PrimitiveListAdapter.class))
+        {
+            DISCOVERED.add(adapter);
+        }
+    }
+
+    private static final ClassValue<Object> ADAPTERS = new ClassValue<Object>()
+    {
+        @Override
+        protected Object computeValue(Class<?> type)
+        {
+            return find(DISCOVERED, type);
+        }
+    };
+
+    private PrimitiveCollectionAdapters()
+    {
+    }
+
+    static Object forClass(Class<?> type)
+    {
+        return ADAPTERS.get(type);
+    }
+
+    static Object find(List<Object> adapters, Class<?> type)
+    {
+        for (Object adapter : adapters)
+        {
+            if (adapter instanceof PrimitiveKeyedMapAdapter && ((PrimitiveKeyedMapAdapter) adapter).supports(type))
+            {
+                return adapter;
+            }
+            if (adapter instanceof PrimitiveListAdapter && ((PrimitiveListAdapter) adapter).supports(type))
+            {
+                return adapter;
+            }
+        }
+        return NONE;
+    }
+}
@@ -0,0 +1,23 @@
+package net.digihippo.reflect;
+
+import java.util.PrimitiveIterator;
+
+/**
+ * Lets {@link DeepCopyAssertion} compare a map with primitive keys by its logical content rather
+ * than its internal hash table. {@code int} keyed maps widen their keys to {@code long}.
+ * <p>
+ * Implementations are discovered with {@link java.util.ServiceLoader}, or can be registered on a
+ * single assertion with {@link DeepCopyAssertion#withPrimitiveAdapter(PrimitiveKeyedMapAdapter)}.
+ */
+public interface PrimitiveKeyedMapAdapter
+{
+    boolean supports(Class<?> type);
+
+    int size(Object map);
+
+    PrimitiveIterator.OfLong keys(Object map);
+
+    boolean containsKey(Object map, long key);
+
+    Object get(Object map, long key);
+}
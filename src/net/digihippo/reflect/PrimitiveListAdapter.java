@@ -0,0 +1,18 @@
+package net.digihippo.reflect;
+
+/**
+ * Lets {@link DeepCopyAssertion} compare a list of primitives as the primitive array of its
+ * elements, ignoring spare capacity.
+ * <p>
+ * Implementations are discovered with {@link java.util.ServiceLoader}, or can be registered on a
+ * single assertion with {@link DeepCopyAssertion#withPrimitiveAdapter(PrimitiveListAdapter)}.
+ */
+public interface PrimitiveListAdapter
+{
+    boolean supports(Class<?> type);
+
+    /**
+     * @return a primitive array holding exactly the elements of {@code list}, in order
+     */
+    Object toArray(Object list);
+}
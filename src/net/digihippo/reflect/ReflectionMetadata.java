@@ -0,0 +1,67 @@
+package net.digihippo.reflect;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Records which classes and fields a training run compared, in the format of GraalVM's
+ * {@code reflect-config.json}, so that a native image can compare them without hand-written
+ * configuration.
+ * <p>
+ * Only classes first compared after {@link #startRecording()} are recorded.
+ */
+public final class ReflectionMetadata
+{
+    private ReflectionMetadata()
+    {
+    }
+
+    public static void startRecording()
+    {
+        ClassPlan.startRecording();
+    }
+
+    public static void stopRecording(Path file) throws IOException
+    {
+        final List<Class<?>> recorded = new ArrayList<>(ClassPlan.stopRecording());
+        recorded.removeIf(type -> !ClassPlan.of(type).accessible);
+        recorded.sort(Comparator.comparing(Class::getName));
+
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+        {
+            out.write("[\n");
+            for (int i = 0; i < recorded.size(); i++)
+            {
+                final Class<?> type = recorded.get(i);
+                out.write("  {\n    \"name\": " + quote(type.getName()) + ",\n    \"fields\": [");
+                final Field[] fields = ClassPlan.of(type).fields;
+                for (int j = 0; j < fields.length; j++)
+                {
+                    out.write((j == 0 ? "\n" : ",\n") + "      { \"name\": " + quote(fields[j].getName()) + " }");
+                }
+                out.write(fields.length == 0 ? "]\n  }" : "\n    ]\n  }");
+                out.write(i == recorded.size() - 1 ? "\n" : ",\n");
+            }
+            out.write("]\n");
+        }
+    }
+
+    private static String quote(String value)
+    {
+        final StringBuilder quoted = new StringBuilder("\"");
+        for (char c : value.toCharArray())
+        {
+            if (c == '"' || c == '\\')
+            {
+                quoted.append('\\');
+            }
+            quoted.append(c);
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,60 @@
+package net.digihippo.reflect;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Adapts third party primitive lists by name, through a method that copies their elements into a
+ * right sized primitive array.
+ */
+class ReflectivePrimitiveListAdapter implements PrimitiveListAdapter
+{
+    private final Map<String, String> toArrayMethodByClassName = new HashMap<>();
+    private final ClassValue<MethodHandle> toArray = new ClassValue<MethodHandle>()
+    {
+        @Override
+        protected MethodHandle computeValue(Class<?> type)
+        {
+            try
+            {
+                return MethodHandles.publicLookup()
+                    .unreflect(type.getMethod(toArrayMethodByClassName.get(type.getName())))
+                    .asType(MethodType.methodType(Object.class, Object.class));
+            }
+            catch (ReflectiveOperationException e)
+            {
+                throw new IllegalStateException("Cannot adapt " + type.getName(), e);
+            }
+        }
+    };
+
+    ReflectivePrimitiveListAdapter(String... classNamesAndToArrayMethods)
+    {
+        for (int i = 0; i < classNamesAndToArrayMethods.length; i += 2)
+        {
+            toArrayMethodByClassName.put(classNamesAndToArrayMethods[i], classNamesAndToArrayMethods[i + 1]);
+        }
+    }
+
+    @Override
+    public boolean supports(Class<?> type)
+    {
+        return toArrayMethodByClassName.containsKey(type.getName());
+    }
+
+    @Override
+    public Object toArray(Object list)
+    {
+        try
+        {
+            return (Object) toArray.get(list.getClass()).invokeExact(list);
+        }
+        catch (Throwable t)
+        {
+            throw ReflectivePrimitiveMapAdapter.rethrow(t);
+        }
+    }
+}
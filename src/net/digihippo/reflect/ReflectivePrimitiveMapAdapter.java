@@ -0,0 +1,200 @@
+package net.digihippo.reflect;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+
+/**
+ * Adapts third party primitive keyed maps by name, so that their libraries need not be present at
+ * compile time. The map must offer {@code size()}, {@code containsKey(key)}, {@code get(key)} and a
+ * {@code keySet()} whose iterator has an unboxed {@code nextKeyMethod}.
+ */
+class ReflectivePrimitiveMapAdapter implements PrimitiveKeyedMapAdapter
+{
+    private static final class Handles
+    {
+        private final MethodHandle size;
+        private final MethodHandle containsKey;
+        private final MethodHandle get;
+        private final MethodHandle keySetIterator;
+        private final MethodHandle hasNext;
+        private final MethodHandle nextKey;
+
+        private Handles(Class<?> type, Class<?> keyType, String nextKeyMethod) throws ReflectiveOperationException
+        {
+            final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            size = lookup.unreflect(type.getMethod("size"))
+                .asType(MethodType.methodType(int.class, Object.class));
+            containsKey = withLongKey(lookup.unreflect(type.getMethod("containsKey", keyType)), keyType)
+                .asType(MethodType.methodType(boolean.class, Object.class, long.class));
+            get = withLongKey(lookup.unreflect(type.getMethod("get", keyType)), keyType)
+                .asType(MethodType.methodType(Object.class, Object.class, long.class));
+
+            final Method keySet = type.getMethod("keySet");
+            final Method iterator = keySet.getReturnType().getMethod("iterator");
+            keySetIterator = MethodHandles.filterReturnValue(lookup.unreflect(keySet), lookup.unreflect(iterator))
+                .asType(MethodType.methodType(Object.class, Object.class));
+            hasNext = lookup.unreflect(iterator.getReturnType().getMethod("hasNext"))
+                .asType(MethodType.methodType(boolean.class, Object.class));
+            nextKey = lookup.unreflect(iterator.getReturnType().getMethod(nextKeyMethod))
+                .asType(MethodType.methodType(long.class, Object.class));
+        }
+    }
+
+    private static final MethodHandle TO_INT_EXACT;
+    static
+    {
+        try
+        {
+            TO_INT_EXACT = MethodHandles.publicLookup().findStatic(
+                Math.class, "toIntExact", MethodType.methodType(int.class, long.class));
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Set<String> classNames;
+    private final Class<?> keyType;
+    private final String nextKeyMethod;
+    private final ClassValue<Handles> handles = new ClassValue<Handles>()
+    {
+        @Override
+        protected Handles computeValue(Class<?> type)
+        {
+            try
+            {
+                return new Handles(type, keyType, nextKeyMethod);
+            }
+            catch (ReflectiveOperationException e)
+            {
+                throw new IllegalStateException("Cannot adapt " + type.getName(), e);
+            }
+        }
+    };
+
+    ReflectivePrimitiveMapAdapter(Class<?> keyType, String nextKeyMethod, String... classNames)
+    {
+        this.keyType = keyType;
+        this.nextKeyMethod = nextKeyMethod;
+        this.classNames = new HashSet<>(Arrays.asList(classNames));
+    }
+
+    @Override
+    public boolean supports(Class<?> type)
+    {
+        return classNames.contains(type.getName());
+    }
+
+    @Override
+    public int size(Object map)
+    {
+        try
+        {
+            return (int) handles.get(map.getClass()).size.invokeExact(map);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong keys(Object map)
+    {
+        final Handles mapHandles = handles.get(map.getClass());
+        final Object iterator;
+        try
+        {
+            iterator = (Object) mapHandles.keySetIterator.invokeExact(map);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+
+        return new PrimitiveIterator.OfLong()
+        {
+            @Override
+            public long nextLong()
+            {
+                if (!hasNext())
+                {
+                    throw new NoSuchElementException();
+                }
+                try
+                {
+                    return (long) mapHandles.nextKey.invokeExact(iterator);
+                }
+                catch (Throwable t)
+                {
+                    throw rethrow(t);
+                }
+            }
+
+            @Override
+            public boolean hasNext()
+            {
+                try
+                {
+                    return (boolean) mapHandles.hasNext.invokeExact(iterator);
+                }
+                catch (Throwable t)
+                {
+                    throw rethrow(t);
+                }
+            }
+        };
+    }
+
+    @Override
+    public boolean containsKey(Object map, long key)
+    {
+        try
+        {
+            return (boolean) handles.get(map.getClass()).containsKey.invokeExact(map, key);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+    @Override
+    public Object get(Object map, long key)
+    {
+        try
+        {
+            return (Object) handles.get(map.getClass()).get.invokeExact(map, key);
+        }
+        catch (Throwable t)
+        {
+            throw rethrow(t);
+        }
+    }
+
+    private static MethodHandle withLongKey(MethodHandle handle, Class<?> keyType)
+    {
+        return keyType == int.class ? MethodHandles.filterArguments(handle, 1, TO_INT_EXACT) : handle;
+    }
+
+    static RuntimeException rethrow(Throwable t)
+    {
+        if (t instanceof RuntimeException)
+        {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error)
+        {
+            throw (Error) t;
+        }
+        return new IllegalStateException(t);
+    }
+}
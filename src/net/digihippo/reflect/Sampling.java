@@ -0,0 +1,95 @@
+package net.digihippo.reflect;
+
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * How much of each object array or collection {@link DeepCopyAssertion} should check when it is
+ * configured to sample. Elements are picked with a pseudo random generator seeded from {@code seed},
+ * so the same graphs are always checked in the same way.
+ */
+public final class Sampling
+{
+    private static final long NO_DEADLINE = Long.MIN_VALUE;
+
+    private final double rate;
+    private final int maxElements;
+    private final long maxNanos;
+    final long seed;
+
+    private Sampling(double rate, int maxElements, long maxNanos, long seed)
+    {
+        this.rate = rate;
+        this.maxElements = maxElements;
+        this.maxNanos = maxNanos;
+        this.seed = seed;
+    }
+
+    public static Sampling rate(double rate, long seed)
+    {
+        if (rate <= 0 || rate > 1)
+        {
+            throw new IllegalArgumentException("Sample rate must be in (0, 1], not " + rate);
+        }
+        return new Sampling(rate, Integer.MAX_VALUE, NO_DEADLINE, seed);
+    }
+
+    public static Sampling elements(int maxElementsPerContainer, long seed)
+    {
+        if (maxElementsPerContainer <= 0)
+        {
+            throw new IllegalArgumentException("Element budget must be positive, not " + maxElementsPerContainer);
+        }
+        return new Sampling(1, maxElementsPerContainer, NO_DEADLINE, seed);
+    }
+
+    public static Sampling time(Duration perContainer, long seed)
+    {
+        if (perContainer.isNegative() || perContainer.isZero())
+        {
+            throw new IllegalArgumentException("Time budget must be positive, not " + perContainer);
+        }
+        return new Sampling(1, Integer.MAX_VALUE, perContainer.toNanos(), seed);
+    }
+
+    int sampleSize(int size)
+    {
+        return Math.min(maxElements, (int) Math.ceil(rate * size));
+    }
+
+    long deadline(long now)
+    {
+        return maxNanos == NO_DEADLINE ? NO_DEADLINE : now + maxNanos;
+    }
+
+    static boolean expired(long deadline, int iteration)
+    {
+        return deadline != NO_DEADLINE && (iteration & 0xFF) == 0xFF && System.nanoTime() - deadline > 0;
+    }
+
+    static int coprimeStride(int size, Random random)
+    {
+        if (size < 2)
+        {
+            return 1;
+        }
+
+        int stride = 1 + random.nextInt(size - 1);
+        while (gcd(stride, size) != 1)
+        {
+            stride = stride == size - 1 ? 1 : stride + 1;
+        }
+        return stride;
+    }
+
+    private static int gcd(int a, int b)
+    {
+        while (b != 0)
+        {
+            final int remainder = a % b;
+            a = b;
+            b = remainder;
+        }
+        return a;
+    }
+}
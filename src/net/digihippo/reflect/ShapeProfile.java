@@ -0,0 +1,289 @@
+package net.digihippo.reflect;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * Aggregates the size and shape of the original graph while {@link DeepCopyAssertion} walks it,
+ * by class and by path prefix. Indices and map keys are folded into {@code [*]}, {@code at(*)}
+ * and {@code get(*)}, and once {@code maxEntries} classes or prefixes are tracked further classes
+ * are counted under {@code <other>} and deeper paths under their nearest tracked prefix.
+ * <p>
+ * Only nodes the walk actually visits are counted, so sampled, budgeted or failing verifications
+ * produce partial profiles. Shallow sizes are estimates for a 64-bit JVM with compressed
+ * references. A profile is not thread safe.
+ */
+public final class ShapeProfile
+{
+    public static final class Shape
+    {
+        public final long nodes;
+        public final long shallowBytes;
+        public final long elements;
+        public final long maxElements;
+
+        Shape(long nodes, long shallowBytes, long elements, long maxElements)
+        {
+            this.nodes = nodes;
+            this.shallowBytes = shallowBytes;
+            this.elements = elements;
+            this.maxElements = maxElements;
+        }
+
+        @Override
+        public String toString()
+        {
+            return nodes + " nodes, " + shallowBytes + " bytes, " + elements + " elements (max " + maxElements + ")";
+        }
+    }
+
+    private static class Tally
+    {
+        long nodes;
+        long shallowBytes;
+        long elements;
+        long maxElements;
+
+        void add(long bytes, long size)
+        {
+            ++nodes;
+            shallowBytes += bytes;
+            if (size >= 0)
+            {
+                elements += size;
+                maxElements = Math.max(maxElements, size);
+            }
+        }
+
+        void addAll(Tally other)
+        {
+            nodes += other.nodes;
+            shallowBytes += other.shallowBytes;
+            elements += other.elements;
+            maxElements = Math.max(maxElements, other.maxElements);
+        }
+
+        Shape shape()
+        {
+            return new Shape(nodes, shallowBytes, elements, maxElements);
+        }
+    }
+
+    private static final class Prefix extends Tally
+    {
+        private final String path;
+        private final Map<String, Prefix> children = new HashMap<>();
+
+        private Prefix(String path)
+        {
+            this.path = path;
+        }
+    }
+
+    private static final int HEADER_BYTES = 12;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+    private static final String OTHER = "<other>";
+
+    private static final ClassValue<Long> INSTANCE_SIZES = new ClassValue<Long>()
+    {
+        @Override
+        protected Long computeValue(Class<?> type)
+        {
+            long size = HEADER_BYTES;
+            for (Class<?> current = type; current != null; current = current.getSuperclass())
+            {
+                for (Field field : current.getDeclaredFields())
+                {
+                    if (!Modifier.isStatic(field.getModifiers()))
+                    {
+                        size += width(field.getType());
+                    }
+                }
+            }
+            return align(size);
+        }
+    };
+
+    private final int maxEntries;
+    private final Map<Class<?>, Tally> byClass = new HashMap<>();
+    private final Tally otherClasses = new Tally();
+    private final Map<String, Prefix> roots = new HashMap<>();
+    private final Deque<Prefix> current = new ArrayDeque<>();
+    private int prefixes;
+
+    public ShapeProfile()
+    {
+        this(1024);
+    }
+
+    public ShapeProfile(int maxEntries)
+    {
+        if (maxEntries <= 0)
+        {
+            throw new IllegalArgumentException("At least one entry is needed, not " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    public Map<String, Shape> byClass()
+    {
+        final Map<String, Shape> shapes = new TreeMap<>();
+        for (Map.Entry<Class<?>, Tally> entry : byClass.entrySet())
+        {
+            shapes.put(entry.getKey().getName(), entry.getValue().shape());
+        }
+        if (otherClasses.nodes > 0)
+        {
+            shapes.put(OTHER, otherClasses.shape());
+        }
+        return shapes;
+    }
+
+    /**
+     * Totals for every tracked prefix, including everything beneath it.
+     */
+    public Map<String, Shape> byPath()
+    {
+        final Map<String, Shape> shapes = new TreeMap<>();
+        for (Prefix root : roots.values())
+        {
+            subtree(root, shapes);
+        }
+        return shapes;
+    }
+
+    void begin()
+    {
+        current.clear();
+    }
+
+    void enter(Object segment, Object node)
+    {
+        final long bytes = shallowSize(node);
+        final long size = sizeOf(node);
+
+        Tally classTally = byClass.get(node.getClass());
+        if (classTally == null)
+        {
+            classTally = byClass.size() < maxEntries ? new Tally() : otherClasses;
+            if (classTally != otherClasses)
+            {
+                byClass.put(node.getClass(), classTally);
+            }
+        }
+        classTally.add(bytes, size);
+
+        final Prefix prefix = prefixFor(current.peek(), fold(segment));
+        prefix.add(bytes, size);
+        current.push(prefix);
+    }
+
+    void exit()
+    {
+        current.pop();
+    }
+
+    private Prefix prefixFor(Prefix parent, String segment)
+    {
+        final Map<String, Prefix> siblings = parent == null ? roots : parent.children;
+        Prefix prefix = siblings.get(segment);
+        if (prefix == null)
+        {
+            if (prefixes >= maxEntries && parent != null)
+            {
+                return parent;
+            }
+            prefix = new Prefix(parent == null ? segment : parent.path + "->" + segment);
+            siblings.put(segment, prefix);
+            ++prefixes;
+        }
+        return prefix;
+    }
+
+    private static Tally subtree(Prefix prefix, Map<String, Shape> shapes)
+    {
+        final Tally total = new Tally();
+        total.addAll(prefix);
+        for (Prefix child : prefix.children.values())
+        {
+            total.addAll(subtree(child, shapes));
+        }
+        shapes.put(prefix.path, total.shape());
+        return total;
+    }
+
+    private static String fold(Object segment)
+    {
+        if (!(segment instanceof String))
+        {
+            return "get(*)";
+        }
+
+        final String name = (String) segment;
+        if (name.startsWith("["))
+        {
+            return "[*]";
+        }
+        if (name.startsWith("at("))
+        {
+            return "at(*)";
+        }
+        return name;
+    }
+
+    private static long sizeOf(Object node)
+    {
+        if (node.getClass().isArray())
+        {
+            return Array.getLength(node);
+        }
+        if (node instanceof Collection)
+        {
+            return ((Collection<?>) node).size();
+        }
+        if (node instanceof Map)
+        {
+            return ((Map<?, ?>) node).size();
+        }
+        return -1;
+    }
+
+    private static long shallowSize(Object node)
+    {
+        final Class<?> type = node.getClass();
+        if (type.isArray())
+        {
+            return align(ARRAY_HEADER_BYTES + (long) Array.getLength(node) * width(type.getComponentType()));
+        }
+        return INSTANCE_SIZES.get(type);
+    }
+
+    private static int width(Class<?> type)
+    {
+        if (type == long.class || type == double.class)
+        {
+            return 8;
+        }
+        if (type == int.class || type == float.class)
+        {
+            return 4;
+        }
+        if (type == short.class || type == char.class)
+        {
+            return 2;
+        }
+        if (type == byte.class || type == boolean.class)
+        {
+            return 1;
+        }
+        return REFERENCE_BYTES;
+    }
+
+    private static long align(long size)
+    {
+        return (size + 7) & ~7L;
+    }
+}
@@ -0,0 +1,63 @@
+package net.digihippo.reflect;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.*;
+import java.util.*;
+
+final class ValueTypes
+{
+    private static final Set<Class<?>> BUILT_IN = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+        String.class,
+        Long.class,
+        Integer.class,
+        Short.class,
+        Byte.class,
+        Character.class,
+        Float.class,
+        Double.class,
+        Boolean.class,
+        BigInteger.class,
+        BigDecimal.class,
+        UUID.class,
+        Instant.class,
+        Duration.class,
+        Period.class,
+        LocalDate.class,
+        LocalTime.class,
+        LocalDateTime.class,
+        OffsetTime.class,
+        OffsetDateTime.class,
+        ZonedDateTime.class,
+        Year.class,
+        YearMonth.class,
+        MonthDay.class,
+        ZoneOffset.class)));
+
+    private static final ClassValue<Boolean> IS_BUILT_IN = new ClassValue<Boolean>()
+    {
+        @Override
+        protected Boolean computeValue(Class<?> type)
+        {
+            return BUILT_IN.contains(type) || ZoneId.class.isAssignableFrom(type);
+        }
+    };
+
+    private final Set<Class<?>> additional;
+
+    ValueTypes(Class<?>... additionalImmutableTypes)
+    {
+        this.additional = additionalImmutableTypes.length == 0 ?
+            null : new HashSet<>(Arrays.asList(additionalImmutableTypes));
+    }
+
+    static boolean isBuiltIn(Class<?> type)
+    {
+        return IS_BUILT_IN.get(type);
+    }
+
+    boolean contains(Class<?> type)
+    {
+        return isBuiltIn(type) || (additional != null && additional.contains(type));
+    }
+}
@@ -0,0 +1,142 @@
+package net.digihippo.reflect;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AsyncDeepCopyVerifierTest
+{
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void shutdown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void verifications_complete_with_the_same_result_as_a_synchronous_match() throws Exception
+    {
+        try (AsyncDeepCopyVerifier verifier = new AsyncDeepCopyVerifier(4))
+        {
+            final CompletableFuture<DeepCopyMatchResult> success =
+                verifier.verify(new ArrayList<>(Arrays.asList(1L, 2L)), new ArrayList<>(Arrays.asList(1L, 2L)));
+            final CompletableFuture<DeepCopyMatchResult> failure =
+                verifier.verify(new long[]{1L, 2L}, new long[]{1L, 3L});
+
+            assertTrue(success.get(5, TimeUnit.SECONDS).isDeepCopy);
+            assertEquals("root->[1]: 2 != 3", failure.get(5, TimeUnit.SECONDS).failureDescription);
+        }
+    }
+
+    @Test
+    public void a_batch_of_pairs_is_verified_in_one_submission() throws Exception
+    {
+        try (AsyncDeepCopyVerifier verifier = new AsyncDeepCopyVerifier(1))
+        {
+            final List<DeepCopyMatchResult> results = verifier.verifyAll(Arrays.asList(
+                ObjectPair.of(new int[]{1}, new int[]{1}),
+                ObjectPair.of(new int[]{1}, new int[]{2}),
+                ObjectPair.of("foo", "foo"))).get(5, TimeUnit.SECONDS);
+
+            assertEquals(3, results.size());
+            assertTrue(results.get(0).isDeepCopy);
+            assertEquals("root->[0]: 1 != 2", results.get(1).failureDescription);
+            assertTrue(results.get(2).isDeepCopy);
+        }
+    }
+
+    @Test
+    public void no_more_than_the_configured_number_of_verifications_run_at_once() throws Exception
+    {
+        final CountDownLatch gate = new CountDownLatch(1);
+        final CountDownLatch firstTwo = new CountDownLatch(2);
+        final AtomicInteger started = new AtomicInteger();
+        final AsyncDeepCopyVerifier verifier = new AsyncDeepCopyVerifier(executor, 2, () ->
+        {
+            started.incrementAndGet();
+            firstTwo.countDown();
+            try
+            {
+                gate.await();
+            }
+            catch (InterruptedException e)
+            {
+                throw new AssertionError(e);
+            }
+            return new DeepCopyAssertion();
+        });
+
+        final List<CompletableFuture<DeepCopyMatchResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+        {
+            futures.add(verifier.verify(new long[]{i}, new long[]{i}));
+        }
+
+        assertTrue(firstTwo.await(5, TimeUnit.SECONDS));
+        assertEquals(2, started.get());
+
+        gate.countDown();
+        for (CompletableFuture<DeepCopyMatchResult> future : futures)
+        {
+            assertTrue(future.get(5, TimeUnit.SECONDS).isDeepCopy);
+        }
+        assertEquals(10, started.get());
+    }
+
+    @Test
+    public void verifications_the_executor_refuses_fail_without_running_on_the_caller()
+        throws InterruptedException, TimeoutException
+    {
+        final AtomicInteger created = new AtomicInteger();
+        final AsyncDeepCopyVerifier verifier = new AsyncDeepCopyVerifier(executor, 1, () ->
+        {
+            created.incrementAndGet();
+            return new DeepCopyAssertion();
+        });
+        executor.shutdown();
+
+        final CompletableFuture<DeepCopyMatchResult> future = verifier.verify("a", "a");
+        assertEquals(0, created.get());
+
+        try
+        {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Expected the closed verifier to refuse the verification");
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    @Test
+    public void exceptions_thrown_during_verification_fail_the_future()
+    {
+        final AsyncDeepCopyVerifier verifier = new AsyncDeepCopyVerifier(executor, 1, () ->
+        {
+            throw new IllegalStateException("boom");
+        });
+
+        try
+        {
+            verifier.verify("a", "a").get(5, TimeUnit.SECONDS);
+            fail("Expected verification to fail");
+        }
+        catch (ExecutionException e)
+        {
+            assertEquals("boom", e.getCause().getMessage());
+        }
+        catch (InterruptedException | TimeoutException e)
+        {
+            throw new AssertionError(e);
+        }
+    }
+}
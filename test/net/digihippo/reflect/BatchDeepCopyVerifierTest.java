@@ -0,0 +1,65 @@
+package net.digihippo.reflect;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class BatchDeepCopyVerifierTest
+{
+    private final BatchDeepCopyVerifier verifier = new BatchDeepCopyVerifier();
+
+    @Test
+    public void only_failing_pairs_carry_details()
+    {
+        final BatchMatchResult result = verifier.verify(pairs(100, 17, 42));
+
+        assertEquals(100, result.size);
+        assertFalse(result.allDeepCopies());
+        assertEquals(2, result.failureCount());
+        assertTrue(result.isDeepCopy(0));
+        assertFalse(result.isDeepCopy(17));
+        assertEquals("root->[0]: 17 != -17", result.failure(17).failureDescription);
+        assertNull(result.failure(16));
+        assertEquals(2, result.failures().size());
+    }
+
+    @Test
+    public void a_stream_of_pairs_can_be_verified()
+    {
+        final BatchMatchResult result = verifier.verify(
+            IntStream.range(0, 10).mapToObj(i -> ObjectPair.of(new long[]{i}, new long[]{i})));
+
+        assertEquals(10, result.size);
+        assertTrue(result.allDeepCopies());
+    }
+
+    @Test
+    public void parallel_verification_reports_failures_at_their_original_index()
+    {
+        final BatchMatchResult result = verifier.verifyInParallel(pairs(1000, 3, 501, 999), 4);
+
+        assertEquals(1000, result.size);
+        assertEquals(3, result.failureCount());
+        assertEquals(3, result.failures().firstKey().intValue());
+        assertEquals(999, result.failures().lastKey().intValue());
+        assertEquals("root->[0]: 501 != -501", result.failure(501).failureDescription);
+    }
+
+    private static List<ObjectPair> pairs(int count, int... broken)
+    {
+        final List<ObjectPair> pairs = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+        {
+            pairs.add(ObjectPair.of(new long[]{i}, new long[]{i}));
+        }
+        for (int index : broken)
+        {
+            pairs.set(index, ObjectPair.of(new long[]{index}, new long[]{-index}));
+        }
+        return pairs;
+    }
+}
@@ -0,0 +1,157 @@
+package net.digihippo.reflect;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class DisjointnessAssertionTest
+{
+    @SuppressWarnings("unused")
+    private static final class Item
+    {
+        private final String name;
+        private Item substitute;
+
+        private Item(String name)
+        {
+            this.name = name;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static final class Basket
+    {
+        private final int[] quantities;
+        private final List<Item> items = new ArrayList<>();
+        private final Map<String, Object> tags = new HashMap<>();
+
+        private Basket(int... quantities)
+        {
+            this.quantities = quantities;
+        }
+    }
+
+    private enum Colour
+    {
+        RED
+    }
+
+    @Test
+    public void separately_constructed_graphs_are_disjoint()
+    {
+        assertDisjoint(basket(), basket());
+    }
+
+    @Test
+    public void values_are_not_compared()
+    {
+        final Basket different = new Basket(7, 8, 9);
+        different.items.add(new Item("something else"));
+        assertDisjoint(basket(), different);
+    }
+
+    @Test
+    public void shared_strings_boxed_values_and_enums_are_permitted()
+    {
+        final Basket one = basket();
+        final Basket two = basket();
+        one.tags.put("colour", Colour.RED);
+        two.tags.put("colour", Colour.RED);
+        one.tags.put("count", 3L);
+        two.tags.put("count", 3L);
+        assertDisjoint(one, two);
+    }
+
+    @Test
+    public void shared_immutable_containers_are_permitted()
+    {
+        final List<String> shared = Collections.unmodifiableList(Arrays.asList("a", "b"));
+        final Basket one = basket();
+        final Basket two = basket();
+        one.tags.put("empty", Collections.emptyList());
+        two.tags.put("empty", Collections.emptyList());
+        one.tags.put("names", List.of("a"));
+        two.tags.put("names", List.of("a"));
+        assertDisjoint(one, two);
+
+        one.tags.put("shared", shared);
+        two.tags.put("shared", shared);
+        assertShared(one, two, "root->tags->get(shared)");
+    }
+
+    @Test
+    public void first_shared_instance_is_reported_with_its_path()
+    {
+        final Basket one = basket();
+        final Basket two = basket();
+        final Item shared = new Item("shared");
+        one.items.get(1).substitute = shared;
+        two.items.add(shared);
+
+        assertShared(one, two, "root->items->at(2)");
+    }
+
+    @Test
+    public void shared_arrays_and_map_keys_are_reported()
+    {
+        final Basket one = basket();
+        final Basket two = new Basket(one.quantities);
+        assertShared(one, two, "root->quantities");
+
+        final Map<Item, String> first = new HashMap<>();
+        final Map<Item, String> second = new HashMap<>();
+        final Item key = new Item("key");
+        first.put(key, "a");
+        second.put(key, "a");
+        assertShared(first, second, "root->get(" + key + ")");
+    }
+
+    @Test
+    public void additional_immutable_types_may_be_shared()
+    {
+        final LocalDate date = LocalDate.of(2018, 1, 9);
+        final Object[] one = {date, new Item("a")};
+        final Object[] two = {date, new Item("a")};
+
+        assertTrue(new DisjointnessAssertion(LocalDate.class).matches(one, two).isDeepCopy);
+    }
+
+    @Test
+    public void cycles_terminate()
+    {
+        final Basket one = basket();
+        final Basket two = basket();
+        one.items.get(0).substitute = one.items.get(0);
+        two.items.get(0).substitute = two.items.get(1);
+        two.items.get(1).substitute = two.items.get(0);
+        assertDisjoint(one, two);
+
+        one.items.get(1).substitute = two.items.get(0);
+        assertShared(two, one, "root->items->at(1)->substitute");
+    }
+
+    private static Basket basket()
+    {
+        final Basket basket = new Basket(1, 2, 3);
+        basket.items.add(new Item("apple"));
+        basket.items.add(new Item("pear"));
+        basket.tags.put("voucher", new Item("voucher"));
+        return basket;
+    }
+
+    private static void assertDisjoint(Object one, Object two)
+    {
+        final DeepCopyMatchResult result = new DisjointnessAssertion().matches(one, two);
+        assertTrue(result.failureDescription, result.isDeepCopy);
+    }
+
+    private static void assertShared(Object one, Object two, String path)
+    {
+        final DeepCopyMatchResult result = new DisjointnessAssertion().matches(one, two);
+        assertFalse(result.isDeepCopy);
+        assertEquals(path + ": The same instance cannot be a deep copy of itself", result.failureDescription);
+    }
+}
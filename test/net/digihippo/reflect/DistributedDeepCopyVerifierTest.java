@@ -0,0 +1,255 @@
+package net.digihippo.reflect;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class DistributedDeepCopyVerifierTest
+{
+    private static DistributedDeepCopyVerifier verifier;
+
+    @SuppressWarnings("unused")
+    private static final class Shard implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final String name;
+        private final long[] values;
+        private Object extra;
+
+        private Shard(String name, long... values)
+        {
+            this.name = name;
+            this.values = values;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static final class Cached implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final String name;
+        private final transient long[] cache;
+
+        private Cached(String name, long... cache)
+        {
+            this.name = name;
+            this.cache = cache;
+        }
+    }
+
+    private static final class WorkerKiller implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private void readObject(ObjectInputStream input)
+        {
+            System.exit(3);
+        }
+    }
+
+    private static final class WorkerStaller implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private void readObject(ObjectInputStream input) throws InterruptedException
+        {
+            Thread.sleep(60_000);
+        }
+    }
+
+    @BeforeClass
+    public static void startWorkers() throws IOException
+    {
+        verifier = new DistributedDeepCopyVerifier(2);
+    }
+
+    @AfterClass
+    public static void stopWorkers() throws IOException
+    {
+        verifier.close();
+    }
+
+    @Test
+    public void sharded_maps_are_verified_across_partitions() throws IOException
+    {
+        final PartitionedMatchResult result = verifier.verify(shards(20), shards(20));
+        assertTrue(result.failureDescription, result.isDeepCopy);
+        assertEquals(8, result.partitions);
+    }
+
+    @Test
+    public void the_earliest_failing_partition_is_reported() throws IOException
+    {
+        final Map<Integer, Shard> copy = shards(20);
+        copy.get(13).values[1] = 99L;
+        copy.get(17).values[0] = 98L;
+
+        final PartitionedMatchResult result = verifier.verify(shards(20), copy);
+        assertFalse(result.isDeepCopy);
+        assertEquals("root->get(13)->values->[1]: 14 != 99", result.failureDescription);
+        assertEquals(5, result.failedPartition);
+    }
+
+    @Test
+    public void missing_and_extra_entries_are_reported() throws IOException
+    {
+        final Map<Integer, Shard> missing = shards(20);
+        missing.remove(3);
+        final PartitionedMatchResult missingResult = verifier.verify(shards(20), missing);
+        assertTrue(missingResult.failureDescription.startsWith("root->get(3): "));
+        assertTrue(missingResult.failureDescription.endsWith(" != null"));
+        assertEquals(1, missingResult.failedPartition);
+
+        final Map<Integer, Shard> extra = shards(20);
+        extra.put(20, new Shard("shard-20"));
+        final PartitionedMatchResult extraResult = verifier.verify(shards(20), extra);
+        assertTrue(extraResult.failureDescription.startsWith("root->get(20): null != "));
+        assertEquals(PartitionedMatchResult.COORDINATOR, extraResult.failedPartition);
+    }
+
+    @Test
+    public void arrays_are_partitioned_by_index() throws IOException
+    {
+        final Object[] one = shards(10).values().toArray();
+        final Object[] two = shards(10).values().toArray();
+        assertTrue(verifier.verify(one, two).isDeepCopy);
+
+        ((Shard) two[9]).values[0] = 5L;
+        final PartitionedMatchResult result = verifier.verify(one, two);
+        assertEquals("root->[9]->values->[0]: 9 != 5", result.failureDescription);
+        assertEquals(7, result.failedPartition);
+
+        final PartitionedMatchResult shorter = verifier.verify(new Object[]{"a", "b"}, new Object[]{"a"});
+        assertEquals("root->[1]: b != <absent>", shorter.failureDescription);
+    }
+
+    @Test
+    public void sharing_within_a_partition_survives_the_trip() throws IOException
+    {
+        final Map<Integer, Shard> one = shards(1);
+        final Map<Integer, Shard> two = shards(1);
+        final ArrayList<String> shared = new ArrayList<>();
+        one.get(0).extra = shared;
+        two.get(0).extra = shared;
+
+        assertEquals(
+            "root->get(0)->extra: The same instance cannot be a deep copy of itself",
+            verifier.verify(one, two).failureDescription);
+    }
+
+    @Test
+    public void other_graphs_are_verified_in_process() throws IOException
+    {
+        final PartitionedMatchResult result = verifier.verify(new Shard("a", 1L), new Shard("a", 2L));
+        assertEquals("root->values->[0]: 1 != 2", result.failureDescription);
+        assertEquals(1, result.partitions);
+    }
+
+    @Test(expected = NotSerializableException.class)
+    public void unserialisable_partitions_are_rejected() throws IOException
+    {
+        final Map<Integer, Shard> one = shards(1);
+        final Map<Integer, Shard> two = shards(1);
+        one.get(0).extra = new Object();
+        two.get(0).extra = new Object();
+        verifier.verify(one, two);
+    }
+
+    @Test
+    public void classes_whose_transient_fields_would_be_dropped_are_rejected() throws IOException
+    {
+        final Map<Integer, Cached> one = new HashMap<>();
+        final Map<Integer, Cached> two = new HashMap<>();
+        one.put(1, new Cached("a", 1L));
+        two.put(1, new Cached("a", 2L));
+        assertEquals(
+            "root->get(1)->cache->[0]: 1 != 2",
+            new DeepCopyAssertion().matches(one, two).failureDescription);
+
+        try
+        {
+            verifier.verify(one, two);
+            fail("expected the partition to be rejected");
+        }
+        catch (NotSerializableException e)
+        {
+            assertEquals(
+                Cached.class.getName() + " has transient field cache, which serialisation would not carry to a worker",
+                e.getMessage());
+        }
+
+        assertTrue(verifier.verify(shards(4), shards(4)).isDeepCopy);
+    }
+
+    @Test
+    public void a_worker_that_dies_is_dropped_and_the_rest_carry_on() throws IOException
+    {
+        try (DistributedDeepCopyVerifier dying = new DistributedDeepCopyVerifier(2))
+        {
+            final Map<Integer, Object> one = new LinkedHashMap<>(shards(8));
+            final Map<Integer, Object> two = new LinkedHashMap<>(shards(8));
+            one.put(0, new WorkerKiller());
+            two.put(0, new WorkerKiller());
+            try
+            {
+                dying.verify(one, two);
+                fail("expected the dead worker to be reported");
+            }
+            catch (IOException expected)
+            {
+                // one worker exited while reading its partition
+            }
+
+            final PartitionedMatchResult result = dying.verify(shards(20), shards(20));
+            assertTrue(result.failureDescription, result.isDeepCopy);
+            assertEquals(4, result.partitions);
+        }
+    }
+
+    @Test
+    public void a_worker_that_does_not_answer_in_time_is_dropped() throws IOException
+    {
+        try (DistributedDeepCopyVerifier stalling =
+                 new DistributedDeepCopyVerifier(2).withWorkerTimeout(Duration.ofSeconds(2)))
+        {
+            final Map<Integer, Object> one = new LinkedHashMap<>(shards(8));
+            final Map<Integer, Object> two = new LinkedHashMap<>(shards(8));
+            one.put(0, new WorkerStaller());
+            two.put(0, new WorkerStaller());
+            try
+            {
+                stalling.verify(one, two);
+                fail("expected the stalled worker to time out");
+            }
+            catch (IOException expected)
+            {
+                assertEquals("Worker did not answer partition 0 within 2000ms", expected.getMessage());
+            }
+
+            final PartitionedMatchResult result = stalling.verify(shards(20), shards(20));
+            assertTrue(result.failureDescription, result.isDeepCopy);
+            assertEquals(4, result.partitions);
+        }
+    }
+
+    private static Map<Integer, Shard> shards(int count)
+    {
+        final Map<Integer, Shard> shards = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++)
+        {
+            shards.put(i, new Shard("shard-" + i, i, i + 1));
+        }
+        return shards;
+    }
+}
@@ -0,0 +1,118 @@
+package net.digihippo.reflect;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GeneratedComparatorTest
+{
+    @DeepCopyComparable
+    static final class Order
+    {
+        static final String UNCOMPARED = "static";
+
+        final String id;
+        final double price;
+        final List<Line> lines = new ArrayList<>();
+
+        Order(String id, double price)
+        {
+            this.id = id;
+            this.price = price;
+        }
+    }
+
+    @DeepCopyComparable
+    static final class Line
+    {
+        final int quantity;
+        Line next;
+
+        Line(int quantity)
+        {
+            this.quantity = quantity;
+        }
+    }
+
+    @Test
+    public void annotated_classes_have_a_registered_comparator()
+    {
+        generated(Order.class);
+        generated(Line.class);
+        assertNull(GeneratedComparators.forClass(GeneratedComparatorTest.class));
+    }
+
+    @Test
+    public void generated_comparators_visit_each_instance_field_once_in_declaration_order()
+    {
+        final List<String> visited = new ArrayList<>();
+        final DeepCopyMatchResult result = generated(Order.class).compare(
+            order(),
+            order(),
+            (name, one, two) ->
+            {
+                visited.add(name);
+                return DeepCopyMatchResult.success();
+            });
+
+        assertTrue(result.isDeepCopy);
+        assertEquals(Arrays.asList("id", "price", "lines"), visited);
+    }
+
+    @Test
+    public void generated_comparators_report_differences_with_their_path()
+    {
+        final Order one = order();
+        final Order two = order();
+        assertTrue(new DeepCopyAssertion().matches(one, two).isDeepCopy);
+
+        two.lines.get(1).next = new Line(3);
+        assertEquals(
+            "root->lines->at(1)->next: null != " + two.lines.get(1).next,
+            new DeepCopyAssertion().matches(one, two).failureDescription);
+    }
+
+    @Test
+    public void generated_comparators_still_honour_tolerances_and_sharing_rules()
+    {
+        final Order one = new Order("a", 1.0);
+        final Order two = new Order("a", 1.0 + 1e-12);
+        assertFalse(new DeepCopyAssertion().matches(one, two).isDeepCopy);
+        assertTrue(new DeepCopyAssertion()
+            .withFloatingPointTolerance(FloatingPointTolerance.absolute(1e-9))
+            .matches(one, two)
+            .isDeepCopy);
+
+        final Line shared = new Line(1);
+        one.lines.add(shared);
+        two.lines.add(shared);
+        assertEquals(
+            "root->lines->at(0): The same instance cannot be a deep copy of itself",
+            new DeepCopyAssertion()
+                .withFloatingPointTolerance(FloatingPointTolerance.absolute(1e-9))
+                .matches(one, two)
+                .failureDescription);
+    }
+
+    private static GeneratedComparator<Object> generated(Class<?> type)
+    {
+        final GeneratedComparator<Object> comparator = GeneratedComparators.forClass(type);
+        assertNotNull(
+            "No comparator was generated for " + type.getName() +
+            "; compile the tests with the processor module on the annotation processor path",
+            comparator);
+        return comparator;
+    }
+
+    private static Order order()
+    {
+        final Order order = new Order("order-1", 12.5);
+        order.lines.add(new Line(1));
+        order.lines.add(new Line(2));
+        return order;
+    }
+}
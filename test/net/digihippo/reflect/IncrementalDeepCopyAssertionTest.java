@@ -0,0 +1,171 @@
+package net.digihippo.reflect;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class IncrementalDeepCopyAssertionTest
+{
+    private static final class Entry
+    {
+        private long value;
+
+        private Entry(long value)
+        {
+            this.value = value;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Entry(" + value + ")";
+        }
+    }
+
+    private static final class Cache
+    {
+        private final List<Entry> entries = new ArrayList<>();
+
+        private Cache(long... values)
+        {
+            for (long value : values)
+            {
+                entries.add(new Entry(value));
+            }
+        }
+    }
+
+    private final IncrementalDeepCopyAssertion assertion = new IncrementalDeepCopyAssertion();
+
+    @Test
+    public void an_unchanged_graph_is_not_walked_again()
+    {
+        final Cache one = new Cache(1, 2, 3);
+        final Cache two = new Cache(1, 2, 3);
+
+        assertSuccess(one, two);
+        assertTrue(assertion.pairsVisited() > 0);
+
+        assertSuccess(one, two);
+        assertEquals(0, assertion.pairsVisited());
+    }
+
+    @Test
+    public void only_the_dirty_subgraph_is_walked_again()
+    {
+        final Cache one = new Cache(1, 2, 3);
+        final Cache two = new Cache(1, 2, 3);
+        assertSuccess(one, two);
+
+        one.entries.get(1).value = 7;
+        two.entries.get(1).value = 7;
+        assertion.markDirty(one.entries.get(1));
+        assertion.markDirty(two.entries.get(1));
+
+        assertSuccess(one, two);
+        assertEquals(1, assertion.pairsVisited());
+    }
+
+    @Test
+    public void a_dirty_subgraph_that_no_longer_matches_is_reported_with_its_full_path()
+    {
+        final Cache one = new Cache(1, 2, 3);
+        final Cache two = new Cache(1, 2, 3);
+        assertSuccess(one, two);
+
+        two.entries.get(2).value = 9;
+        assertion.markDirty(two.entries.get(2));
+
+        final DeepCopyMatchResult result = assertion.matches(one, two);
+        assertFalse(result.isDeepCopy);
+        assertEquals("root->entries->at(2)->value: 3 != 9", result.failureDescription);
+    }
+
+    @Test
+    public void every_path_to_an_aliased_node_is_checked_again()
+    {
+        final Entry shared = new Entry(1);
+        final Cache one = new Cache();
+        one.entries.add(shared);
+        one.entries.add(shared);
+        final Cache two = new Cache(1, 1);
+        assertSuccess(one, two);
+
+        two.entries.get(0).value = 5;
+        assertion.markDirty(two.entries.get(0));
+
+        final DeepCopyMatchResult result = assertion.matches(one, two);
+        assertFalse(result.isDeepCopy);
+        assertEquals("root->entries->at(0)->value: 1 != 5", result.failureDescription);
+    }
+
+    @Test
+    public void replaced_nodes_are_no_longer_tracked()
+    {
+        final Cache one = new Cache(1, 2, 3);
+        final Cache two = new Cache(1, 2, 3);
+        assertSuccess(one, two);
+        final int tracked = assertion.trackedNodes();
+
+        for (int round = 0; round < 1000; round++)
+        {
+            one.entries.set(1, new Entry(round));
+            two.entries.set(1, new Entry(round));
+            assertion.markDirty(one.entries);
+            assertion.markDirty(two.entries);
+            assertSuccess(one, two);
+        }
+        assertEquals(tracked, assertion.trackedNodes());
+    }
+
+    @Test
+    public void structural_changes_to_a_container_are_picked_up()
+    {
+        final Cache one = new Cache(1, 2, 3);
+        final Cache two = new Cache(1, 2, 3);
+        assertSuccess(one, two);
+
+        final Entry shared = new Entry(4);
+        one.entries.add(shared);
+        two.entries.add(shared);
+        assertion.markDirty(one.entries);
+        assertion.markDirty(two.entries);
+
+        final DeepCopyMatchResult result = assertion.matches(one, two);
+        assertEquals("root->entries->at(3): The same instance cannot be a deep copy of itself", result.failureDescription);
+    }
+
+    @Test
+    public void removed_nodes_that_are_marked_dirty_are_ignored()
+    {
+        final Cache one = new Cache(1, 2, 3);
+        final Cache two = new Cache(1, 2, 3);
+        assertSuccess(one, two);
+
+        final Entry removed = one.entries.remove(0);
+        two.entries.remove(0);
+        removed.value = 12;
+        assertion.markDirty(one.entries);
+        assertion.markDirty(two.entries);
+        assertion.markDirty(removed);
+
+        assertSuccess(one, two);
+    }
+
+    @Test
+    public void new_roots_are_verified_in_full()
+    {
+        assertSuccess(new Cache(1, 2), new Cache(1, 2));
+
+        final DeepCopyMatchResult result = assertion.matches(new Cache(1, 2), new Cache(1, 5));
+        assertEquals("root->entries->at(1)->value: 2 != 5", result.failureDescription);
+    }
+
+    private void assertSuccess(Object one, Object two)
+    {
+        final DeepCopyMatchResult result = assertion.matches(one, two);
+        assertTrue(result.failureDescription, result.isDeepCopy);
+    }
+}
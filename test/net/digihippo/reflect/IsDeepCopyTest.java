@@ -0,0 +1,75 @@
+package net.digihippo.reflect;
+
+import org.hamcrest.Matcher;
+import org.hamcrest.StringDescription;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static net.digihippo.reflect.IsDeepCopy.deepCopyOf;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.*;
+
+public class IsDeepCopyTest
+{
+    @SuppressWarnings("unused")
+    private static final class Holder
+    {
+        private final List<Object> things;
+
+        private Holder(Object... things)
+        {
+            this.things = new ArrayList<>(Arrays.asList(things));
+        }
+    }
+
+    @Test
+    public void copies_match()
+    {
+        assertThat(new Holder("a", 1L), deepCopyOf(new Holder("a", 1L)));
+        assertThat(new Holder("a", 1L), not(deepCopyOf(new Holder("a", 2L))));
+    }
+
+    @Test
+    public void failures_describe_the_first_difference()
+    {
+        try
+        {
+            assertThat(new Holder("a", 2L), deepCopyOf(new Holder("a", 1L)));
+            fail("expected a mismatch");
+        }
+        catch (AssertionError e)
+        {
+            assertEquals(
+                "\nExpected: a deep copy of a " + Holder.class.getName() +
+                "\n     but: root->things->at(1): 1 != 2",
+                e.getMessage());
+        }
+    }
+
+    @Test
+    public void mismatches_are_described_without_comparing_again()
+    {
+        final Holder copy = new Holder("a", 2L);
+        final Matcher<Object> matcher = deepCopyOf(new Holder("a", 1L));
+        assertFalse(matcher.matches(copy));
+
+        copy.things.set(1, 1L);
+        final StringDescription description = new StringDescription();
+        matcher.describeMismatch(copy, description);
+        assertEquals("root->things->at(1): 1 != 2", description.toString());
+    }
+
+    @Test
+    public void additional_immutable_types_and_configured_assertions_are_honoured()
+    {
+        final LocalDate date = LocalDate.of(2018, 1, 9);
+        assertThat(new Holder(date), deepCopyOf(new Holder(date), LocalDate.class));
+        assertThat(
+            new Holder(1.0 + 1e-12),
+            deepCopyOf(
+                new Holder(1.0),
+                new DeepCopyAssertion().withFloatingPointTolerance(FloatingPointTolerance.absolute(1e-9))));
+    }
+}
@@ -0,0 +1,267 @@
+package net.digihippo.reflect;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class MappedSnapshotTest
+{
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @SuppressWarnings("unused")
+    private static final class Node
+    {
+        private final String name;
+        private final long[] readings;
+        private final List<Node> children;
+        private final Map<String, Integer> counts;
+
+        private Node(String name, long[] readings, List<Node> children, Map<String, Integer> counts)
+        {
+            this.name = name;
+            this.readings = readings;
+            this.children = children;
+            this.counts = counts;
+        }
+    }
+
+    private enum Colour
+    {
+        RED,
+        GREEN
+    }
+
+    @SuppressWarnings("unused")
+    private static final class Dated
+    {
+        private final LocalDate date;
+        private final Colour colour;
+
+        private Dated(LocalDate date, Colour colour)
+        {
+            this.date = date;
+            this.colour = colour;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static final class Key
+    {
+        private final String name;
+
+        private Key(String name)
+        {
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            return o instanceof Key && ((Key) o).name.equals(name);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return name.length();
+        }
+
+        @Override
+        public String toString()
+        {
+            return name;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static final class Reading
+    {
+        private final int h;
+
+        private Reading(int h)
+        {
+            this.h = h;
+        }
+    }
+
+    @Test
+    public void a_graph_read_back_from_disk_matches_an_equal_copy()
+    {
+        assertSnapshotSuccess(tree(), tree());
+    }
+
+    @Test
+    public void differences_are_reported_with_their_path()
+    {
+        final Node copy = tree();
+        copy.children.get(1).readings[2] = 99L;
+
+        assertSnapshotFailure(tree(), copy, "root->children->at(1)->readings->[2]: 12 != 99");
+    }
+
+    @Test
+    public void missing_and_extra_entries_are_reported()
+    {
+        final Node shorter = tree();
+        shorter.children.remove(1);
+        assertSnapshotFailure(tree(), shorter, "root->children->at(1): <" + Node.class.getName() + "> != <absent>");
+
+        final Node extraKey = tree();
+        extraKey.counts.put("extra", 5);
+        assertSnapshotFailure(tree(), extraKey, "root->counts->get(extra): null != 5");
+
+        final Node changedValue = tree();
+        changedValue.counts.put("b", 7);
+        assertSnapshotFailure(tree(), changedValue, "root->counts->get(b): 2 != 7");
+    }
+
+    @Test
+    public void type_differences_are_reported()
+    {
+        assertSnapshotFailure(
+            "foo",
+            4L,
+            "root: objects are not the same type (java.lang.String versus java.lang.Long)");
+    }
+
+    @Test
+    public void additional_immutable_types_and_enums_are_compared_by_value()
+    {
+        assertSnapshotSuccess(
+            new Dated(LocalDate.of(2018, 1, 9), Colour.RED),
+            new Dated(LocalDate.of(2018, 1, 9), Colour.RED),
+            LocalDate.class);
+        assertSnapshotFailure(
+            new Dated(LocalDate.of(2018, 1, 9), Colour.RED),
+            new Dated(LocalDate.of(2018, 1, 9), Colour.GREEN),
+            "root->colour: RED != GREEN",
+            LocalDate.class);
+    }
+
+    @Test
+    public void maps_keyed_by_other_value_types_are_compared_in_order()
+    {
+        final Map<Short, String> one = new LinkedHashMap<>();
+        one.put((short) 1, "a");
+        one.put((short) 2, "b");
+        final Map<Short, String> two = new LinkedHashMap<>(one);
+        assertSnapshotSuccess(one, two);
+
+        two.put((short) 2, "c");
+        assertSnapshotFailure(one, two, "root->get(2): b != c");
+    }
+
+    @Test
+    public void keys_only_in_the_copy_are_reported_even_when_the_sizes_agree()
+    {
+        final Map<String, String> one = new HashMap<>();
+        one.put("a", null);
+        final Map<String, String> two = new HashMap<>();
+        two.put("b", "x");
+        assertEquals("root->get(b): null != x", new DeepCopyAssertion().matches(one, two).failureDescription);
+
+        assertSnapshotFailure(one, two, "root->get(b): null != x");
+    }
+
+    @Test
+    public void hash_maps_are_paired_by_key_regardless_of_iteration_order()
+    {
+        final Map<Key, Reading> one = new HashMap<>(2);
+        final Map<Key, Reading> two = new HashMap<>(256);
+        final String[] names = {"k1", "k22", "k333", "k4", "k55", "k6666", "k7"};
+        for (int i = 0; i < names.length; i++)
+        {
+            one.put(new Key(names[i]), new Reading(i));
+            two.put(new Key(names[names.length - 1 - i]), new Reading(names.length - 1 - i));
+        }
+        assertTrue(new DeepCopyAssertion().matches(one, two).isDeepCopy);
+        assertSnapshotSuccess(one, two);
+
+        two.put(new Key("k4"), new Reading(17));
+        assertSnapshotFailure(one, two, "root->get(k4)->h: 3 != 17");
+
+        two.put(new Key("k4"), new Reading(3));
+        two.put(new Key("k8"), new Reading(8));
+        assertSnapshotFailure(one, two, "root->get(k8): null != " + two.get(new Key("k8")));
+
+        two.remove(new Key("k8"));
+        two.remove(new Key("k1"));
+        assertSnapshotFailure(one, two, "root->get(<" + Key.class.getName() + ">): <" + Reading.class.getName() + "> != null");
+    }
+
+    @Test
+    public void values_that_straddle_page_boundaries_are_read_correctly() throws IOException
+    {
+        final double[] one = new double[1000];
+        final double[] two = new double[1000];
+        for (int i = 0; i < one.length; i++)
+        {
+            one[i] = i * 1.5;
+            two[i] = i * 1.5;
+        }
+        final List<String> words = Arrays.asList("a somewhat longer string", "another one", "ok");
+        final List<String> copiedWords = Arrays.asList("a somewhat longer string", "another one", "ok");
+
+        final MappedSnapshotStore store = new MappedSnapshotStore(7);
+        try (MappedSnapshot snapshot = store.write(folder.newFile().toPath(), new Object[]{one, words}))
+        {
+            assertTrue(snapshot.matches(new Object[]{two, copiedWords}).isDeepCopy);
+
+            two[999] = 3.0;
+            assertEquals(
+                "root->[0]->[999]: 1498.5 != 3.0",
+                snapshot.matches(new Object[]{two, copiedWords}).failureDescription);
+        }
+    }
+
+    private static Node tree()
+    {
+        final Map<String, Integer> counts = new HashMap<>();
+        counts.put("a", 1);
+        counts.put("b", 2);
+        final List<Node> children = new ArrayList<>();
+        children.add(new Node("left", new long[]{1L, 2L}, new ArrayList<>(), new HashMap<>()));
+        children.add(new Node("right", new long[]{10L, 11L, 12L}, new ArrayList<>(), new HashMap<>()));
+        return new Node("root", new long[0], children, counts);
+    }
+
+    private void assertSnapshotFailure(
+        Object one,
+        Object two,
+        String message,
+        Class<?>... additionalImmutableTypes)
+    {
+        final DeepCopyMatchResult result = snapshotMatch(one, two, additionalImmutableTypes);
+        assertFalse(result.isDeepCopy);
+        assertEquals(message, result.failureDescription);
+    }
+
+    private void assertSnapshotSuccess(
+        Object one,
+        Object two,
+        Class<?>... additionalImmutableTypes)
+    {
+        final DeepCopyMatchResult result = snapshotMatch(one, two, additionalImmutableTypes);
+        assertTrue(result.failureDescription, result.isDeepCopy);
+    }
+
+    private DeepCopyMatchResult snapshotMatch(Object one, Object two, Class<?>... additionalImmutableTypes)
+    {
+        try (MappedSnapshot snapshot =
+                 new MappedSnapshotStore(additionalImmutableTypes).write(folder.newFile().toPath(), one))
+        {
+            return snapshot.matches(two);
+        }
+        catch (IOException e)
+        {
+            throw new AssertionError(e);
+        }
+    }
+}
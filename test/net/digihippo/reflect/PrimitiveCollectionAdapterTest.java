@@ -0,0 +1,271 @@
+package net.digihippo.reflect;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class PrimitiveCollectionAdapterTest
+{
+    public static final class LongTable
+    {
+        private long[] keys;
+        private Object[] values;
+        private boolean[] used;
+        private int size;
+
+        public LongTable(int capacity)
+        {
+            keys = new long[capacity];
+            values = new Object[capacity];
+            used = new boolean[capacity];
+        }
+
+        public void put(long key, Object value)
+        {
+            int slot = slot(key);
+            while (used[slot] && keys[slot] != key)
+            {
+                slot = (slot + 1) % keys.length;
+            }
+            if (!used[slot])
+            {
+                ++size;
+            }
+            used[slot] = true;
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        public int size()
+        {
+            return size;
+        }
+
+        public boolean containsKey(long key)
+        {
+            return find(key) >= 0;
+        }
+
+        public Object get(long key)
+        {
+            final int slot = find(key);
+            return slot < 0 ? null : values[slot];
+        }
+
+        public KeySet keySet()
+        {
+            return new KeySet();
+        }
+
+        private int find(long key)
+        {
+            int slot = slot(key);
+            for (int probes = 0; probes < keys.length && used[slot]; probes++)
+            {
+                if (keys[slot] == key)
+                {
+                    return slot;
+                }
+                slot = (slot + 1) % keys.length;
+            }
+            return -1;
+        }
+
+        private int slot(long key)
+        {
+            return (int) Math.floorMod(key, (long) keys.length);
+        }
+
+        public final class KeySet
+        {
+            public KeyIterator iterator()
+            {
+                return new KeyIterator();
+            }
+        }
+
+        public final class KeyIterator
+        {
+            private int slot = advance(0);
+
+            public boolean hasNext()
+            {
+                return slot < keys.length;
+            }
+
+            public long nextLong()
+            {
+                final long key = keys[slot];
+                slot = advance(slot + 1);
+                return key;
+            }
+
+            private int advance(int from)
+            {
+                int next = from;
+                while (next < keys.length && !used[next])
+                {
+                    ++next;
+                }
+                return next;
+            }
+        }
+    }
+
+    public static final class IntTable
+    {
+        private final Map<Integer, Object> entries;
+
+        public IntTable(int capacity)
+        {
+            entries = new HashMap<>(capacity);
+        }
+
+        public void put(int key, Object value)
+        {
+            entries.put(key, value);
+        }
+
+        public int size()
+        {
+            return entries.size();
+        }
+
+        public boolean containsKey(int key)
+        {
+            return entries.containsKey(key);
+        }
+
+        public Object get(int key)
+        {
+            return entries.get(key);
+        }
+
+        public KeySet keySet()
+        {
+            return new KeySet();
+        }
+
+        public final class KeySet
+        {
+            public KeyIterator iterator()
+            {
+                return new KeyIterator();
+            }
+        }
+
+        public final class KeyIterator
+        {
+            private final Iterator<Integer> keys = entries.keySet().iterator();
+
+            public boolean hasNext()
+            {
+                return keys.hasNext();
+            }
+
+            public int nextInt()
+            {
+                return keys.next();
+            }
+        }
+    }
+
+    public static final class LongList
+    {
+        private final long[] elements;
+        private final int size;
+
+        public LongList(int capacity, long... values)
+        {
+            elements = Arrays.copyOf(values, capacity);
+            size = values.length;
+        }
+
+        public long[] toLongArray()
+        {
+            return Arrays.copyOf(elements, size);
+        }
+    }
+
+    private final DeepCopyAssertion assertion = new DeepCopyAssertion()
+        .withPrimitiveAdapter(new ReflectivePrimitiveMapAdapter(long.class, "nextLong", LongTable.class.getName()))
+        .withPrimitiveAdapter(new ReflectivePrimitiveMapAdapter(int.class, "nextInt", IntTable.class.getName()))
+        .withPrimitiveAdapter(new ReflectivePrimitiveListAdapter(LongList.class.getName(), "toLongArray"));
+
+    @Test
+    public void primitive_maps_with_different_capacities_are_compared_by_content()
+    {
+        final LongTable one = new LongTable(8);
+        final LongTable two = new LongTable(32);
+        one.put(3L, "three");
+        one.put(11L, "eleven");
+        two.put(11L, "eleven");
+        two.put(3L, "three");
+
+        assertFalse(new DeepCopyAssertion().matches(one, two).isDeepCopy);
+        final DeepCopyMatchResult result = assertion.matches(one, two);
+        assertTrue(result.failureDescription, result.isDeepCopy);
+    }
+
+    @Test
+    public void primitive_map_differences_are_reported_by_key()
+    {
+        final LongTable one = new LongTable(8);
+        final LongTable two = new LongTable(8);
+        one.put(3L, "three");
+        two.put(3L, "drei");
+        assertEquals("root->get(3): three != drei", assertion.matches(one, two).failureDescription);
+
+        two.put(3L, "three");
+        two.put(5L, "five");
+        assertEquals("root->get(5): <absent> != five", assertion.matches(one, two).failureDescription);
+        assertEquals("root->get(5): five != <absent>", assertion.matches(two, one).failureDescription);
+    }
+
+    @Test
+    public void int_keyed_maps_are_compared_through_long_keys()
+    {
+        final IntTable one = new IntTable(4);
+        final IntTable two = new IntTable(64);
+        one.put(3, "three");
+        one.put(-7, "minus seven");
+        two.put(-7, "minus seven");
+        two.put(3, "three");
+        final DeepCopyMatchResult result = assertion.matches(one, two);
+        assertTrue(result.failureDescription, result.isDeepCopy);
+
+        two.put(3, "drei");
+        assertEquals("root->get(3): three != drei", assertion.matches(one, two).failureDescription);
+
+        two.put(3, "three");
+        two.put(9, "nine");
+        assertEquals("root->get(9): <absent> != nine", assertion.matches(one, two).failureDescription);
+    }
+
+    @Test
+    public void primitive_lists_ignore_spare_capacity()
+    {
+        final LongList one = new LongList(4, 1L, 2L);
+        final LongList two = new LongList(16, 1L, 2L);
+        assertTrue(assertion.matches(one, two).isDeepCopy);
+
+        assertEquals(
+            "root->[1]: 2 != 3",
+            assertion.matches(one, new LongList(2, 1L, 3L)).failureDescription);
+    }
+
+    @Test
+    public void built_in_adapters_are_discovered_but_only_claim_their_own_libraries()
+    {
+        boolean fastutilDiscovered = false;
+        for (PrimitiveKeyedMapAdapter adapter : ServiceLoader.load(PrimitiveKeyedMapAdapter.class))
+        {
+            fastutilDiscovered |= adapter instanceof FastutilMapAdapter;
+            assertFalse(adapter.supports(LongTable.class));
+        }
+        assertTrue(fastutilDiscovered);
+        assertSame(PrimitiveCollectionAdapters.NONE, PrimitiveCollectionAdapters.forClass(LongTable.class));
+    }
+}
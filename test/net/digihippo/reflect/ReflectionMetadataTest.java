@@ -0,0 +1,57 @@
+package net.digihippo.reflect;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class ReflectionMetadataTest
+{
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @SuppressWarnings("unused")
+    private static final class Recorded
+    {
+        private static final int IGNORED = 1;
+
+        private final String name;
+        private final Leaf leaf;
+
+        private Recorded(String name, Leaf leaf)
+        {
+            this.name = name;
+            this.leaf = leaf;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static final class Leaf
+    {
+    }
+
+    @Test
+    public void a_training_run_records_compared_classes_and_their_fields() throws IOException
+    {
+        final Path file = folder.newFile().toPath();
+        ReflectionMetadata.startRecording();
+        new DeepCopyAssertion().matches(new Recorded("a", new Leaf()), new Recorded("a", new Leaf()));
+        ReflectionMetadata.stopRecording(file);
+
+        final String written = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        assertTrue(written, written.contains(
+            "\"name\": \"" + Recorded.class.getName() + "\",\n" +
+            "    \"fields\": [\n" +
+            "      { \"name\": \"name\" },\n" +
+            "      { \"name\": \"leaf\" }\n" +
+            "    ]"));
+        assertTrue(written, written.contains("\"name\": \"" + Leaf.class.getName() + "\",\n    \"fields\": []"));
+        assertFalse(written, written.contains("IGNORED"));
+    }
+}
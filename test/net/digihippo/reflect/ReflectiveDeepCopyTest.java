@@ -2,8 +2,13 @@ package net.digihippo.reflect;
 
 import org.junit.Test;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.junit.Assert.*;
 
@@ -265,6 +270,112 @@ public class ReflectiveDeepCopyTest
             "root->get(two): null != ExampleOne(24232)");
     }
 
+    private static final class UnprintableKey
+    {
+        private final long id;
+
+        private UnprintableKey(long id)
+        {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            return o instanceof UnprintableKey && ((UnprintableKey) o).id == id;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Long.hashCode(id);
+        }
+
+        @Override
+        public String toString()
+        {
+            throw new UnsupportedOperationException("keys should only be rendered on failure");
+        }
+    }
+
+    @Test
+    public void map_keys_are_not_rendered_unless_there_is_a_failure()
+    {
+        final Map<UnprintableKey, Long> one = new HashMap<>();
+        final Map<UnprintableKey, Long> two = new HashMap<>();
+        one.put(new UnprintableKey(1L), 5L);
+        two.put(new UnprintableKey(1L), 5L);
+
+        assertDeepCopySuccess(one, two);
+        assertDeepCopySuccess(one, two, MapComparison.KEYS_AND_VALUES);
+    }
+
+    @Test
+    public void keys_shared_between_maps_are_deep_copy_failures_when_keys_are_compared()
+    {
+        final Map<ExampleOne, String> one = new HashMap<>();
+        final Map<ExampleOne, String> two = new HashMap<>();
+        final ExampleOne key = new ExampleOne(3L);
+        one.put(key, "three");
+        two.put(key, "three");
+
+        assertDeepCopySuccess(one, two);
+        assertDeepCopyFailure(
+            one, two,
+            "root->get(ExampleOne(3))->key: The same instance cannot be a deep copy of itself",
+            MapComparison.KEYS_AND_VALUES);
+    }
+
+    @Test
+    public void paired_map_entries_report_missing_and_extra_keys()
+    {
+        final Map<String, ExampleOne> one = new HashMap<>();
+        final Map<String, ExampleOne> two = new HashMap<>();
+        one.put("one", new ExampleOne(24232L));
+        two.put("one", new ExampleOne(24232L));
+        two.put("two", new ExampleOne(24232L));
+
+        assertDeepCopyFailure(
+            one, two, "root->get(two): <absent> != ExampleOne(24232)", MapComparison.KEYS_AND_VALUES);
+        assertDeepCopyFailure(
+            two, one, "root->get(two): ExampleOne(24232) != <absent>", MapComparison.KEYS_AND_VALUES);
+    }
+
+    @Test
+    public void sorted_maps_are_compared_with_a_merge_walk()
+    {
+        final TreeMap<Long, ExampleOne> one = new TreeMap<>();
+        final TreeMap<Long, ExampleOne> two = new TreeMap<>();
+        for (long i = 0; i < 10; i++)
+        {
+            one.put(i, new ExampleOne(i));
+            if (i != 4)
+            {
+                two.put(i, new ExampleOne(i));
+            }
+        }
+
+        assertDeepCopyFailure(one, two, "root->get(4): ExampleOne(4) != <absent>", MapComparison.KEYS_AND_VALUES);
+
+        two.put(4L, new ExampleOne(5L));
+        assertDeepCopyFailure(one, two, "root->get(4)->firstField: 4 != 5", MapComparison.KEYS_AND_VALUES);
+    }
+
+    @Test
+    public void linked_maps_in_a_different_order_are_still_paired_by_key()
+    {
+        final Map<String, ExampleOne> one = new LinkedHashMap<>();
+        final Map<String, ExampleOne> two = new LinkedHashMap<>();
+        one.put("a", new ExampleOne(1L));
+        one.put("b", new ExampleOne(2L));
+        one.put("c", new ExampleOne(3L));
+        two.put("a", new ExampleOne(1L));
+        two.put("c", new ExampleOne(3L));
+        two.put("b", new ExampleOne(2L));
+
+        assertDeepCopySuccess(one, two, MapComparison.KEYS_AND_VALUES);
+    }
+
     @Test
     public void list_values_that_contain_same_instance_at_same_index_are_deep_copy_failures()
     {
@@ -325,6 +436,197 @@ public class ReflectiveDeepCopyTest
             "root->at(1): ExampleOne(2455) != <absent>");
     }
 
+    @Test
+    public void jdk_collections_are_compared_element_by_element_whatever_their_strategy()
+    {
+        final List<Collection<ExampleOne>> ones = Arrays.asList(
+            new ArrayList<>(), new ArrayDeque<>(), new CopyOnWriteArrayList<>(), new LinkedList<>());
+        final List<Collection<ExampleOne>> twos = Arrays.asList(
+            new ArrayList<>(), new ArrayDeque<>(), new CopyOnWriteArrayList<>(), new LinkedList<>());
+        for (int i = 0; i < ones.size(); i++)
+        {
+            ones.get(i).add(new ExampleOne(24232L));
+            twos.get(i).add(new ExampleOne(24232L));
+            assertDeepCopySuccess(ones.get(i), twos.get(i));
+
+            twos.get(i).add(new ExampleOne(2455L));
+            assertDeepCopyFailure(ones.get(i), twos.get(i), "root->at(1): <absent> != ExampleOne(2455)");
+            assertDeepCopyFailure(twos.get(i), ones.get(i), "root->at(1): ExampleOne(2455) != <absent>");
+        }
+    }
+
+    @Test
+    public void collection_strategies_are_chosen_per_concrete_class()
+    {
+        assertEquals(CollectionStrategy.INDEXED, CollectionStrategy.of(ArrayList.class));
+        assertEquals(CollectionStrategy.INDEXED, CollectionStrategy.of(Arrays.asList(1, 2).getClass()));
+        assertEquals(CollectionStrategy.INDEXED, CollectionStrategy.of(List.of(1, 2, 3).getClass()));
+        assertEquals(CollectionStrategy.SNAPSHOT, CollectionStrategy.of(CopyOnWriteArrayList.class));
+        assertEquals(CollectionStrategy.ITERATED, CollectionStrategy.of(ArrayDeque.class));
+        assertEquals(CollectionStrategy.GENERIC, CollectionStrategy.of(ExampleOne.class));
+    }
+
+    @Test
+    public void immutable_jdk_collections_of_values_may_be_shared()
+    {
+        final List<String> shared = List.of("a", "b");
+        assertDeepCopySuccess(new ExampleThreeList(shared), new ExampleThreeList(shared));
+        assertDeepCopySuccess(
+            new ExampleThreeList(Collections.emptyList()), new ExampleThreeList(Collections.emptyList()));
+        assertDeepCopySuccess(Map.of("a", 1L), Map.of("a", 1L));
+    }
+
+    @Test
+    public void immutable_jdk_collections_holding_mutable_objects_may_not_be_shared()
+    {
+        final List<ExampleOne> shared = List.of(new ExampleOne(1L));
+        assertDeepCopyFailure(
+            new ExampleThreeList(shared),
+            new ExampleThreeList(shared),
+            "root->values->at(0): The same instance cannot be a deep copy of itself");
+    }
+
+    @Test
+    public void unmodifiable_views_may_not_be_shared()
+    {
+        final List<String> view = Collections.unmodifiableList(new ArrayList<>(Arrays.asList("a")));
+        assertDeepCopyFailure(
+            new ExampleThreeList(view),
+            new ExampleThreeList(view),
+            "root->values: The same instance cannot be a deep copy of itself");
+    }
+
+    @SuppressWarnings("unused")
+    private static final class ExampleThreeList
+    {
+        private final List<?> values;
+
+        private ExampleThreeList(List<?> values)
+        {
+            this.values = values;
+        }
+    }
+
+    private static final class RacingList extends ArrayList<Long>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private int modificationsToSimulate;
+
+        private RacingList(int modificationsToSimulate, Long... values)
+        {
+            super(Arrays.asList(values));
+            this.modificationsToSimulate = modificationsToSimulate;
+        }
+
+        @Override
+        public Object[] toArray()
+        {
+            if (modificationsToSimulate > 0)
+            {
+                --modificationsToSimulate;
+                throw new ConcurrentModificationException();
+            }
+            return super.toArray();
+        }
+    }
+
+    private static final class MovingList extends ArrayList<Long>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private long next;
+
+        private MovingList(long start)
+        {
+            next = start;
+        }
+
+        @Override
+        public Object[] toArray()
+        {
+            return new Object[]{next++};
+        }
+    }
+
+    private static final class DriftingList extends ArrayList<Object>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Object child;
+        private final boolean drifts;
+        private int snapshots;
+
+        private DriftingList(Object child, boolean drifts)
+        {
+            this.child = child;
+            this.drifts = drifts;
+        }
+
+        @Override
+        public Object[] toArray()
+        {
+            return new Object[]{child, drifts && snapshots++ % 2 == 0 ? "drifting" : "settled"};
+        }
+    }
+
+    @Test
+    public void live_containers_are_retried_until_a_consistent_view_is_taken()
+    {
+        final DeepCopyMatchResult result = new DeepCopyAssertion()
+            .withLiveGraphs(3)
+            .matches(new RacingList(2, 1L, 2L), new RacingList(0, 1L, 2L));
+        assertTrue(result.failureDescription, result.isDeepCopy);
+    }
+
+    @Test
+    public void live_containers_that_never_settle_are_reported_as_concurrently_modified()
+    {
+        final DeepCopyMatchResult cme = new DeepCopyAssertion()
+            .withLiveGraphs(2)
+            .matches(new ExampleThreeList(new RacingList(5, 1L)), new ExampleThreeList(new RacingList(0, 1L)));
+        assertTrue(cme.isConcurrentlyModified);
+        assertTrue(cme.isInconclusive);
+        assertEquals(
+            "root->values: modified concurrently on each of 2 attempts to take a consistent view",
+            cme.failureDescription);
+
+        final DeepCopyMatchResult moving = new DeepCopyAssertion()
+            .withLiveGraphs(3)
+            .matches(new MovingList(0L), new MovingList(10L));
+        assertFalse(moving.isDeepCopy);
+        assertTrue(moving.isConcurrentlyModified);
+    }
+
+    @Test
+    public void stable_differences_in_live_containers_are_ordinary_failures()
+    {
+        final DeepCopyMatchResult result = new DeepCopyAssertion()
+            .withLiveGraphs(3)
+            .matches(new RacingList(1, 1L, 2L), new RacingList(0, 1L, 3L));
+        assertFalse(result.isConcurrentlyModified);
+        assertEquals("root->at(1): 2 != 3", result.failureDescription);
+    }
+
+    @Test
+    public void nested_live_containers_share_one_retry_budget()
+    {
+        final DriftingList innermost = new DriftingList(1L, true);
+        final Object one = new DriftingList(new DriftingList(innermost, true), true);
+        final Object two = new DriftingList(new DriftingList(new DriftingList(1L, false), false), false);
+
+        final DeepCopyMatchResult exhausted = new DeepCopyAssertion()
+            .withLiveGraphs(3)
+            .matches(one, two);
+        assertTrue(exhausted.isConcurrentlyModified);
+        assertEquals(3, innermost.snapshots);
+
+        final DeepCopyMatchResult settled = new DeepCopyAssertion()
+            .withLiveGraphs(8)
+            .matches(one, two);
+        assertTrue(settled.failureDescription, settled.isDeepCopy);
+    }
+
     @Test
     public void primitives_of_same_value_are_deep_copies()
     {
@@ -469,6 +771,65 @@ public class ReflectiveDeepCopyTest
             "root->[1]: <absent> != false");
     }
 
+    @Test
+    public void floating_point_arrays_are_compared_exactly_by_default()
+    {
+        assertDeepCopySuccess(new double[]{Double.NaN, 1.0}, new double[]{Double.NaN, 1.0});
+        assertDeepCopyFailure(new double[]{1.0, 0.0}, new double[]{1.0, -0.0}, "root->[1]: 0.0 != -0.0");
+        assertDeepCopyFailure(
+            new float[]{1F, 2F}, new float[]{1F, Math.nextUp(2F)}, "root->[1]: 2.0 != 2.0000002");
+    }
+
+    @Test
+    public void floating_point_arrays_can_be_compared_within_a_tolerance()
+    {
+        final double[] one = new double[1000];
+        final double[] two = new double[1000];
+        for (int i = 0; i < one.length; i++)
+        {
+            one[i] = i / 3.0;
+            two[i] = i % 7 == 0 ? Math.nextUp(one[i]) : one[i];
+        }
+
+        assertTrue(matchWithin(FloatingPointTolerance.ulps(1), one, two).isDeepCopy);
+        assertTrue(matchWithin(FloatingPointTolerance.absolute(1e-9), one, two).isDeepCopy);
+
+        two[500] += 0.5;
+        assertEquals(
+            "root->[500]: 166.66666666666666 != 167.16666666666666",
+            matchWithin(FloatingPointTolerance.ulps(1), one, two).failureDescription);
+
+        assertTrue(matchWithin(
+            FloatingPointTolerance.absolute(0.01f), new float[]{1.0f, 2.0f}, new float[]{1.001f, 2.0f}).isDeepCopy);
+    }
+
+    @Test
+    public void nan_and_signed_zero_policies_can_be_chosen()
+    {
+        final FloatingPointTolerance strictNans =
+            FloatingPointTolerance.exact().with(FloatingPointTolerance.NanPolicy.NAN_NEVER_EQUAL);
+        assertEquals(
+            "root->[0]: NaN != NaN",
+            matchWithin(strictNans, new double[]{Double.NaN}, new double[]{Double.NaN}).failureDescription);
+
+        final FloatingPointTolerance zerosEqual =
+            FloatingPointTolerance.ulps(0).with(FloatingPointTolerance.SignedZeroPolicy.EQUAL);
+        assertTrue(matchWithin(zerosEqual, new double[]{0.0}, new double[]{-0.0}).isDeepCopy);
+        assertTrue(matchWithin(zerosEqual, new float[]{0.0F}, new float[]{-0.0F}).isDeepCopy);
+    }
+
+    @Test
+    public void boxed_floating_point_fields_use_the_tolerance_too()
+    {
+        assertTrue(matchWithin(FloatingPointTolerance.ulps(2), 1.0, Math.nextUp(1.0)).isDeepCopy);
+        assertFalse(matchWithin(FloatingPointTolerance.ulps(2), 1.0, 1.5).isDeepCopy);
+    }
+
+    private static DeepCopyMatchResult matchWithin(FloatingPointTolerance tolerance, Object one, Object two)
+    {
+        return new DeepCopyAssertion().withFloatingPointTolerance(tolerance).matches(one, two);
+    }
+
     @Test
     public void do_not_confuse_null_with_absence_in_object_arrays()
     {
@@ -563,6 +924,167 @@ public class ReflectiveDeepCopyTest
         assertDeepCopyFailure(ExampleSix.ONE, ExampleSix.TWO, "root: ONE != TWO");
     }
 
+    @Test
+    public void sampling_checks_a_fraction_of_large_collections_and_reports_coverage()
+    {
+        final List<ExampleOne> one = new ArrayList<>();
+        final List<ExampleOne> two = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+        {
+            one.add(new ExampleOne(i));
+            two.add(new ExampleOne(i));
+        }
+
+        final DeepCopyMatchResult result =
+            new DeepCopyAssertion().withSampling(Sampling.rate(0.1, 42L)).matches(one, two);
+        assertTrue(result.failureDescription, result.isDeepCopy);
+        assertEquals(0.1, result.coverage, 0.0001);
+
+        final DeepCopyMatchResult budgeted =
+            new DeepCopyAssertion().withSampling(Sampling.elements(50, 42L)).matches(one.toArray(), two.toArray());
+        assertTrue(budgeted.failureDescription, budgeted.isDeepCopy);
+        assertEquals(0.05, budgeted.coverage, 0.0001);
+    }
+
+    @Test
+    public void sampling_is_reproducible_for_a_given_seed()
+    {
+        final LinkedList<Long> one = new LinkedList<>();
+        final LinkedList<Long> two = new LinkedList<>();
+        for (long i = 0; i < 1000; i++)
+        {
+            one.add(i);
+            two.add(i + 1);
+        }
+
+        final DeepCopyMatchResult first =
+            new DeepCopyAssertion().withSampling(Sampling.rate(0.01, 7L)).matches(one, two);
+        final DeepCopyMatchResult second =
+            new DeepCopyAssertion().withSampling(Sampling.rate(0.01, 7L)).matches(one, two);
+
+        assertFalse(first.isDeepCopy);
+        assertEquals(first.failureDescription, second.failureDescription);
+    }
+
+    @Test
+    public void sampled_collections_of_different_sizes_are_still_reported_in_full()
+    {
+        final List<ExampleOne> one = new ArrayList<>();
+        final List<ExampleOne> two = new ArrayList<>();
+        one.add(new ExampleOne(24232L));
+        two.add(new ExampleOne(24232L));
+        two.add(new ExampleOne(2455L));
+
+        final DeepCopyMatchResult result =
+            new DeepCopyAssertion().withSampling(Sampling.rate(0.5, 1L)).matches(one, two);
+        assertEquals("root->at(1): <absent> != ExampleOne(2455)", result.failureDescription);
+        assertEquals(1.0, result.coverage, 0.0);
+    }
+
+    @Test
+    public void exhausting_the_node_budget_is_inconclusive_rather_than_a_failure()
+    {
+        final List<ExampleOne> one = new ArrayList<>();
+        final List<ExampleOne> two = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+        {
+            one.add(new ExampleOne(i));
+            two.add(new ExampleOne(i));
+        }
+
+        final DeepCopyMatchResult result = new DeepCopyAssertion().withNodeBudget(5).matches(one, two);
+        assertFalse(result.isDeepCopy);
+        assertTrue(result.isInconclusive);
+        assertEquals("root->at(2): verification stopped after 5 nodes", result.failureDescription);
+
+        final DeepCopyMatchResult plenty = new DeepCopyAssertion().withNodeBudget(1000).matches(one, two);
+        assertTrue(plenty.failureDescription, plenty.isDeepCopy);
+    }
+
+    @Test
+    public void a_cancelled_verification_is_inconclusive()
+    {
+        final long[][] one = new long[1000][];
+        final long[][] two = new long[1000][];
+        for (int i = 0; i < one.length; i++)
+        {
+            one[i] = new long[]{i};
+            two[i] = new long[]{i};
+        }
+        final CancellationToken cancellation = new CancellationToken();
+        cancellation.cancel();
+
+        final DeepCopyMatchResult result = new DeepCopyAssertion().withCancellation(cancellation).matches(one, two);
+        assertTrue(result.isInconclusive);
+        assertEquals("root->[254]: verification cancelled after 256 nodes", result.failureDescription);
+    }
+
+    @Test
+    public void cancellation_is_noticed_part_way_through_a_large_primitive_array()
+    {
+        final CancellationToken cancellation = new CancellationToken();
+        cancellation.cancel();
+        final DeepCopyAssertion assertion = new DeepCopyAssertion().withCancellation(cancellation);
+
+        final DeepCopyMatchResult longs = assertion.matches(new long[100_000], new long[100_000]);
+        assertTrue(longs.isInconclusive);
+        assertEquals("root->[4096]: verification cancelled after 1 nodes", longs.failureDescription);
+
+        final DeepCopyMatchResult doubles = assertion.matches(new double[100_000], new double[100_000]);
+        assertTrue(doubles.isInconclusive);
+        assertEquals("root->[4096]: verification cancelled after 1 nodes", doubles.failureDescription);
+
+        final DeepCopyMatchResult chars = assertion.matches(new char[100_000], new char[100_000]);
+        assertTrue(chars.isInconclusive);
+        assertEquals("root->[4096]: verification cancelled after 1 nodes", chars.failureDescription);
+    }
+
+    @Test
+    public void genuine_failures_are_not_inconclusive()
+    {
+        final DeepCopyMatchResult result =
+            new DeepCopyAssertion().withTimeBudget(Duration.ofMinutes(1)).matches(new ExampleOne(1), new ExampleOne(2));
+        assertFalse(result.isDeepCopy);
+        assertFalse(result.isInconclusive);
+    }
+
+    @Test
+    public void jdk_value_types_are_compared_by_value()
+    {
+        assertDeepCopySuccess(
+            new Object[]{(short) 3, 'c', new BigInteger("123456789012345678901234"), new BigDecimal("1.50"),
+                new UUID(1L, 2L), LocalDate.of(2018, 1, 9), Duration.ofSeconds(5), ZoneId.of("Europe/London")},
+            new Object[]{(short) 3, 'c', new BigInteger("123456789012345678901234"), new BigDecimal("1.50"),
+                new UUID(1L, 2L), LocalDate.of(2018, 1, 9), Duration.ofSeconds(5), ZoneId.of("Europe/London")});
+        assertDeepCopyFailure(
+            new Object[]{new BigDecimal("1.50")},
+            new Object[]{new BigDecimal("1.5")},
+            "root->[0]: 1.50 != 1.5");
+        assertDeepCopyFailure(new Object[]{'a'}, new Object[]{'b'}, "root->[0]: a != b");
+    }
+
+    @Test
+    public void short_and_char_arrays_are_compared_element_by_element()
+    {
+        assertDeepCopySuccess(new short[]{1, 2, 3}, new short[]{1, 2, 3});
+        assertDeepCopySuccess("abc".toCharArray(), "abc".toCharArray());
+        assertDeepCopyFailure(new short[]{1, 2, 3}, new short[]{1, 5, 3}, "root->[1]: 2 != 5");
+        assertDeepCopyFailure("abc".toCharArray(), "ab".toCharArray(), "root->[2]: c != <absent>");
+        assertDeepCopyFailure(new short[0], new short[]{4}, "root->[0]: <absent> != 4");
+    }
+
+    @Test
+    public void encapsulated_jdk_types_are_compared_with_equals()
+    {
+        assertDeepCopySuccess(
+            new Object[]{new Locale("en", "GB")},
+            new Object[]{new Locale("en", "GB")});
+        assertDeepCopyFailure(
+            new Object[]{new Locale("en", "GB")},
+            new Object[]{new Locale("fr", "FR")},
+            "root->[0]: en_GB != fr_FR");
+    }
+
     private void assertDeepCopyFailure(
         Object one,
         Object two,
@@ -573,13 +1095,32 @@ public class ReflectiveDeepCopyTest
         assertEquals(message, result.failureDescription);
     }
 
+    private void assertDeepCopyFailure(
+        Object one,
+        Object two,
+        String message,
+        MapComparison mapComparison)
+    {
+        DeepCopyMatchResult result = new DeepCopyAssertion().withMapComparison(mapComparison).matches(one, two);
+        assertFalse(result.isDeepCopy);
+        assertEquals(message, result.failureDescription);
+    }
+
     private void assertDeepCopySuccess(
         Object one,
         Object two,
-        Class<?> ... additionalImmutableTypes)
+        MapComparison mapComparison)
     {
-        DeepCopyMatchResult matches = new DeepCopyAssertion(additionalImmutableTypes).matches(one, two);
+        DeepCopyMatchResult matches = new DeepCopyAssertion().withMapComparison(mapComparison).matches(one, two);
         assertTrue(matches.failureDescription, matches.isDeepCopy);
     }
 
+    private void assertDeepCopySuccess(
+        Object one,
+        Object two,
+        Class<?> ... additionalImmutableTypes)
+    {
+        assertThat(two, IsDeepCopy.deepCopyOf(one, additionalImmutableTypes));
+    }
+
 }
@@ -0,0 +1,166 @@
+package net.digihippo.reflect;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ShapeProfileTest
+{
+    @SuppressWarnings("unused")
+    private static final class Position
+    {
+        private final String symbol;
+        private final long[] fills;
+
+        private Position(String symbol, long... fills)
+        {
+            this.symbol = symbol;
+            this.fills = fills;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static final class Portfolio
+    {
+        private final String owner;
+        private final List<Position> positions = new ArrayList<>();
+        private final Map<String, Integer> limits = new HashMap<>();
+
+        private Portfolio(String owner)
+        {
+            this.owner = owner;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static final class Ledger
+    {
+        private final long balance;
+        private final int entries;
+        private final Object[] postings;
+
+        private Ledger(long balance, Object... postings)
+        {
+            this.balance = balance;
+            this.entries = postings.length;
+            this.postings = postings;
+        }
+    }
+
+    @Test
+    public void nodes_are_aggregated_by_class()
+    {
+        final ShapeProfile profile = profile(portfolio(), portfolio());
+        final Map<String, ShapeProfile.Shape> byClass = profile.byClass();
+
+        assertEquals(1, byClass.get(Portfolio.class.getName()).nodes);
+        assertEquals(2, byClass.get(Position.class.getName()).nodes);
+        assertEquals(2, byClass.get(long[].class.getName()).nodes);
+        assertEquals(5, byClass.get(long[].class.getName()).elements);
+        assertEquals(3, byClass.get(long[].class.getName()).maxElements);
+        assertEquals(2, byClass.get(ArrayList.class.getName()).elements);
+        assertEquals(3, byClass.get(String.class.getName()).nodes);
+        assertEquals(2, byClass.get(Integer.class.getName()).nodes);
+        assertEquals(24, byClass.get(Position.class.getName()).shallowBytes / 2);
+        assertEquals(32 + 40, byClass.get(long[].class.getName()).shallowBytes);
+    }
+
+    @Test
+    public void primitive_fields_are_not_nodes_and_object_array_elements_are_counted_once()
+    {
+        final ShapeProfile profile = profile(
+            new Ledger(100L, "opening", new Position("ABC", 1L)),
+            new Ledger(100L, "opening", new Position("ABC", 1L)));
+        final Map<String, ShapeProfile.Shape> byClass = profile.byClass();
+
+        assertEquals(
+            new TreeSet<>(Arrays.asList(
+                Ledger.class.getName(),
+                Object[].class.getName(),
+                String.class.getName(),
+                Position.class.getName(),
+                long[].class.getName())),
+            new TreeSet<>(byClass.keySet()));
+        assertEquals(1, byClass.get(Object[].class.getName()).nodes);
+        assertEquals(2, byClass.get(Object[].class.getName()).elements);
+        assertEquals(2, byClass.get(String.class.getName()).nodes);
+        assertEquals(1, byClass.get(Position.class.getName()).nodes);
+        assertEquals(6, profile.byPath().get("root").nodes);
+        assertEquals(5, profile.byPath().get("root->postings").nodes);
+    }
+
+    @Test
+    public void paths_fold_indices_and_keys_and_include_their_subtrees()
+    {
+        final Map<String, ShapeProfile.Shape> byPath = profile(portfolio(), portfolio()).byPath();
+
+        assertEquals(
+            new TreeSet<>(Arrays.asList(
+                "root",
+                "root->owner",
+                "root->positions",
+                "root->positions->at(*)",
+                "root->positions->at(*)->symbol",
+                "root->positions->at(*)->fills",
+                "root->limits",
+                "root->limits->get(*)")),
+            byPath.keySet());
+        assertEquals(2, byPath.get("root->positions->at(*)->fills").nodes);
+        assertEquals(2, byPath.get("root->limits->get(*)").nodes);
+        assertEquals(7, byPath.get("root->positions").nodes);
+        assertEquals(
+            byPath.get("root").nodes,
+            profileTotal(profile(portfolio(), portfolio()).byClass()));
+    }
+
+    @Test
+    public void aggregation_is_bounded()
+    {
+        final ShapeProfile profile = new ShapeProfile(3);
+        new DeepCopyAssertion().withProfile(profile).matches(portfolio(), portfolio());
+
+        assertEquals(4, profile.byClass().size());
+        assertTrue(profile.byClass().containsKey("<other>"));
+        assertEquals(3, profile.byPath().size());
+        assertEquals(profileTotal(profile.byClass()), profile.byPath().get("root").nodes);
+    }
+
+    @Test
+    public void profiling_does_not_change_the_result()
+    {
+        final Portfolio copy = portfolio();
+        copy.positions.get(1).fills[0] = 7L;
+        assertEquals(
+            "root->positions->at(1)->fills->[0]: 10 != 7",
+            new DeepCopyAssertion().withProfile(new ShapeProfile()).matches(portfolio(), copy).failureDescription);
+    }
+
+    private static ShapeProfile profile(Object one, Object two)
+    {
+        final ShapeProfile profile = new ShapeProfile();
+        assertTrue(new DeepCopyAssertion().withProfile(profile).matches(one, two).isDeepCopy);
+        return profile;
+    }
+
+    private static long profileTotal(Map<String, ShapeProfile.Shape> shapes)
+    {
+        long nodes = 0;
+        for (ShapeProfile.Shape shape : shapes.values())
+        {
+            nodes += shape.nodes;
+        }
+        return nodes;
+    }
+
+    private static Portfolio portfolio()
+    {
+        final Portfolio portfolio = new Portfolio("alice");
+        portfolio.positions.add(new Position("ABC", 1L, 2L));
+        portfolio.positions.add(new Position("XYZ", 10L, 11L, 12L));
+        portfolio.limits.put("ABC", 1);
+        portfolio.limits.put("XYZ", 2);
+        return portfolio;
+    }
+}